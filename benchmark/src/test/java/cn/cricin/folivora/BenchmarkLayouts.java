@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Looks up views of the benchmark layouts, attributes are read from
+ * compiled layouts, the same way {@link android.view.LayoutInflater} does
+ */
+final class BenchmarkLayouts {
+  private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+
+  /**
+   * @param ctx context to load layout with
+   * @param tag tag of a view in bench_drawables.xml
+   * @return a parser positioned at that view, which should be closed
+   *         after use
+   */
+  static XmlResourceParser open(Context ctx, String tag) throws Exception {
+    final XmlResourceParser parser = ctx.getResources()
+      .getLayout(cn.cricin.folivora.benchmark.R.layout.bench_drawables);
+    int type;
+    while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+      if (type == XmlPullParser.START_TAG && tag.equals(parser.getAttributeValue(ANDROID_NS, "tag"))) {
+        return parser;
+      }
+    }
+    parser.close();
+    throw new IllegalArgumentException("No view tagged " + tag);
+  }
+
+  private BenchmarkLayouts() {}
+}
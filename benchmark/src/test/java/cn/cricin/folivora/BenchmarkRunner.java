@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks matching system property folivora.benchmark inside
+ * Robolectric. JMH can not fork here, since forked JVMs would have no
+ * Android environment, so benchmarks share this JVM, compare numbers of
+ * the same machine and JDK only.
+ * <p>
+ * Benchmark and setup methods are called on a JMH worker thread, not on
+ * Robolectric's main thread, which is blocked by this test meanwhile.
+ * Benchmarks must not post to the main looper or depend on a looper of
+ * their thread, eg, lazy drawables are not benchmarked.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BenchmarkRunner {
+
+  @Test
+  public void run() throws Exception {
+    final File result = new File("build/reports/benchmark/results.json");
+    //noinspection ResultOfMethodCallIgnored
+    result.getParentFile().mkdirs();
+    final Options options = new OptionsBuilder()
+      .include(System.getProperty("folivora.benchmark", "Benchmark"))
+      .forks(0)
+      .threads(1)
+      .mode(Mode.AverageTime)
+      .timeUnit(TimeUnit.MICROSECONDS)
+      .warmupIterations(5)
+      .warmupTime(TimeValue.seconds(1))
+      .measurementIterations(10)
+      .measurementTime(TimeValue.seconds(1))
+      .result(result.getPath())
+      .resultFormat(ResultFormatType.JSON)
+      .build();
+    new Runner(options).run();
+  }
+}
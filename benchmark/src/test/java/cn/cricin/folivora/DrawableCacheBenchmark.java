@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.Xml;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Applies a selector with a drawableId, either found in cache, or with
+ * a cache too small to keep it, so every lookup misses, parses and puts
+ */
+@State(Scope.Thread)
+public class DrawableCacheBenchmark {
+  @Param({"hit", "miss"})
+  public String lookup;
+
+  private XmlResourceParser mParser;
+  private AttributeSet mAttrs;
+  private View mView;
+
+  @Setup
+  public void setUp() throws Exception {
+    final Context ctx = RuntimeEnvironment.application;
+    mParser = BenchmarkLayouts.open(ctx, "cached");
+    mAttrs = Xml.asAttributeSet(mParser);
+    mView = new View(ctx);
+    Folivora.setDrawableCacheSize("hit".equals(lookup) ? DrawableCache.defaultMaxBytes() : 1);
+    Folivora.applyDrawableToView(mView, mAttrs);
+  }
+
+  @TearDown
+  public void tearDown() {
+    Folivora.setDrawableCacheSize(DrawableCache.defaultMaxBytes());
+    mParser.close();
+  }
+
+  @Benchmark
+  public Drawable applyDrawable() {
+    Folivora.applyDrawableToView(mView, mAttrs);
+    return mView.getBackground();
+  }
+}
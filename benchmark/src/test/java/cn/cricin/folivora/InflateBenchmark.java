@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Inflates the same layout with the platform inflater, which ignores
+ * folivora attrs, and with {@link FolivoraViewFactory}, the difference
+ * is what folivora costs per inflation
+ */
+@State(Scope.Thread)
+public class InflateBenchmark {
+  private LayoutInflater mPlain;
+  private LayoutInflater mFolivora;
+
+  @Setup
+  public void setUp() {
+    final Context ctx = RuntimeEnvironment.application;
+    mPlain = LayoutInflater.from(ctx);
+    mFolivora = LayoutInflater.from(Folivora.wrap(ctx));
+  }
+
+  @Benchmark
+  public View plain() {
+    return mPlain.inflate(cn.cricin.folivora.benchmark.R.layout.bench_inflate, null);
+  }
+
+  @Benchmark
+  public View folivora() {
+    return mFolivora.inflate(cn.cricin.folivora.benchmark.R.layout.bench_inflate, null);
+  }
+}
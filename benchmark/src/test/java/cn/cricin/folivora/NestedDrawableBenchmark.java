@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.Xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Creates a nested shape through the public {@link Folivora#getDrawable(Context,
+ * TypedArray, AttributeSet, int)}, as custom views and parsers do
+ */
+@State(Scope.Thread)
+public class NestedDrawableBenchmark {
+  private XmlResourceParser mParser;
+  private AttributeSet mAttrs;
+  private TypedArray mArray;
+  private Context mContext;
+
+  @Setup
+  public void setUp() throws Exception {
+    mContext = RuntimeEnvironment.application;
+    mParser = BenchmarkLayouts.open(mContext, "layer_list");
+    mAttrs = Xml.asAttributeSet(mParser);
+    mArray = mContext.obtainStyledAttributes(mAttrs, R.styleable.Folivora_Layer);
+  }
+
+  @TearDown
+  public void tearDown() {
+    mArray.recycle();
+    mParser.close();
+  }
+
+  @Benchmark
+  public Drawable getDrawable() {
+    return Folivora.getDrawable(mContext, mArray, mAttrs, R.styleable.Folivora_Layer_layerItem0Drawable);
+  }
+}
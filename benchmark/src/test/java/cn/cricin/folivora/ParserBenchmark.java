@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.Xml;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Parses and applies a drawable of each built-in type, views carry no
+ * drawableId, so nothing is cached and every call parses
+ */
+@State(Scope.Thread)
+public class ParserBenchmark {
+  @Param({"shape", "selector", "layer_list", "ripple", "level_list", "clip", "inset", "scale", "animation"})
+  public String type;
+
+  private XmlResourceParser mParser;
+  private AttributeSet mAttrs;
+  private View mView;
+
+  @Setup
+  public void setUp() throws Exception {
+    final Context ctx = RuntimeEnvironment.application;
+    mParser = BenchmarkLayouts.open(ctx, type);
+    mAttrs = Xml.asAttributeSet(mParser);
+    mView = new View(ctx);
+  }
+
+  @TearDown
+  public void tearDown() {
+    mParser.close();
+  }
+
+  @Benchmark
+  public Drawable applyDrawable() {
+    Folivora.applyDrawableToView(mView, mAttrs);
+    return mView.getBackground();
+  }
+}
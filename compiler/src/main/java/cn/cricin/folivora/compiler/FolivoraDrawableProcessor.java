@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates DrawableParsers for drawables annotated with FolivoraDrawable,
+ * one FolivoraDrawables class per package, which creates these drawables
+ * by calling their (Context, AttributeSet) constructor directly.
+ */
+public final class FolivoraDrawableProcessor extends AbstractProcessor {
+  private static final String ANNOTATION = "cn.cricin.folivora.FolivoraDrawable";
+  private static final String DRAWABLE = "android.graphics.drawable.Drawable";
+  private static final String CONTEXT = "android.content.Context";
+  private static final String ATTRIBUTE_SET = "android.util.AttributeSet";
+  private static final String GENERATED_CLASS_NAME = "FolivoraDrawables";
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(ANNOTATION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    final TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+    if (annotation == null || annotations.isEmpty()) return false;
+    final Map<String, List<TypeElement>> drawablesByPackage = new TreeMap<>();
+    for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+      if (!isValidDrawable(element)) continue;
+      final TypeElement type = (TypeElement) element;
+      final String packageName = getPackage(type).getQualifiedName().toString();
+      List<TypeElement> drawables = drawablesByPackage.get(packageName);
+      if (drawables == null) {
+        drawables = new ArrayList<>();
+        drawablesByPackage.put(packageName, drawables);
+      }
+      drawables.add(type);
+    }
+    for (Map.Entry<String, List<TypeElement>> entry : drawablesByPackage.entrySet()) {
+      writeParsers(entry.getKey(), entry.getValue());
+    }
+    return true;
+  }
+
+  private boolean isValidDrawable(Element element) {
+    if (element.getKind() != ElementKind.CLASS) {
+      error(element, "@FolivoraDrawable can only be applied to classes");
+      return false;
+    }
+    final TypeElement type = (TypeElement) element;
+    final TypeMirror drawable = processingEnv.getElementUtils().getTypeElement(DRAWABLE).asType();
+    if (!processingEnv.getTypeUtils().isSubtype(type.asType(), drawable)) {
+      error(element, "%s must extend %s", type.getQualifiedName(), DRAWABLE);
+      return false;
+    }
+    final Set<Modifier> modifiers = type.getModifiers();
+    if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+      error(element, "%s must not be abstract or private", type.getQualifiedName());
+      return false;
+    }
+    if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+      error(element, "%s must be a static class", type.getQualifiedName());
+      return false;
+    }
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (constructor.getModifiers().contains(Modifier.PRIVATE)) continue;
+      final List<? extends VariableElement> params = constructor.getParameters();
+      if (params.size() == 2
+        && CONTEXT.equals(params.get(0).asType().toString())
+        && ATTRIBUTE_SET.equals(params.get(1).asType().toString())) {
+        return true;
+      }
+    }
+    error(element, "%s must have a non private (Context, AttributeSet) constructor, "
+      + "register a DrawableParser for it instead", type.getQualifiedName());
+    return false;
+  }
+
+  private void writeParsers(String packageName, List<TypeElement> drawables) {
+    final String className = packageName.isEmpty()
+      ? GENERATED_CLASS_NAME : packageName + "." + GENERATED_CLASS_NAME;
+    final Element[] originatingElements = drawables.toArray(new Element[0]);
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(className, originatingElements);
+      try (Writer writer = file.openWriter()) {
+        writer.write(generateSource(packageName, drawables));
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+        "Could not write " + className + ": " + e.getMessage());
+    }
+  }
+
+  private static String generateSource(String packageName, List<TypeElement> drawables) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("// Generated by folivora-compiler, do not modify.\n");
+    if (!packageName.isEmpty()) sb.append("package ").append(packageName).append(";\n\n");
+    sb.append("import android.graphics.drawable.Drawable;\n")
+      .append("import cn.cricin.folivora.DrawableParser;\n")
+      .append("import cn.cricin.folivora.Folivora;\n")
+      .append("import cn.cricin.folivora.ParseRequest;\n\n")
+      .append("public final class ").append(GENERATED_CLASS_NAME).append(" implements DrawableParser {\n\n")
+      .append("  /**\n")
+      .append("   * Register parsers of @FolivoraDrawable annotated drawables in this package\n")
+      .append("   */\n")
+      .append("  public static void register() {\n")
+      .append("    final DrawableParser parser = new ").append(GENERATED_CLASS_NAME).append("();\n");
+    for (TypeElement drawable : drawables) {
+      sb.append("    Folivora.registerDrawableParser(")
+        .append(drawable.getQualifiedName()).append(".class, parser);\n");
+    }
+    sb.append("  }\n\n")
+      .append("  private ").append(GENERATED_CLASS_NAME).append("() {}\n\n")
+      .append("  @Override\n")
+      .append("  public Drawable parse(ParseRequest request) {\n")
+      .append("    switch (request.drawableClassName()) {\n");
+    for (TypeElement drawable : drawables) {
+      // Parsers are registered by canonical names
+      sb.append("      case \"").append(drawable.getQualifiedName()).append("\":\n")
+        .append("        return new ").append(drawable.getQualifiedName())
+        .append("(request.context(), request.attrs());\n");
+    }
+    sb.append("      default:\n")
+      .append("        return null;\n")
+      .append("    }\n")
+      .append("  }\n")
+      .append("}\n");
+    return sb.toString();
+  }
+
+  private static PackageElement getPackage(Element element) {
+    while (element.getKind() != ElementKind.PACKAGE) {
+      element = element.getEnclosingElement();
+    }
+    return (PackageElement) element;
+  }
+
+  private void error(Element element, String message, Object... args) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(message, args), element);
+  }
+}
@@ -0,0 +1,703 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora.compiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Generates a LayoutDrawableFactory from layout files of an application, which
+ * creates shapes and selectors declared by folivora attrs of layout
+ * elements directly, so they are not parsed from styled attributes while
+ * inflating. Elements are keyed by their layout and the line number of
+ * their start tag, which is kept in compiled layouts.
+ * <p>
+ * Elements are left to runtime parsing if any of their values is not
+ * known at build time(eg, theme attributes or styles), if they have a
+ * drawableId, drawableName or drawableLazy, or are not set as background.
+ * Layouts with qualified variants(eg, layout-land) are not generated,
+ * since they share one resource id.
+ * <p>
+ * Usage: LayoutDrawableGenerator &lt;manifest&gt; &lt;output dir&gt; &lt;res dir&gt;...
+ */
+public final class LayoutDrawableGenerator {
+  static final String GENERATED_CLASS_NAME = "FolivoraLayoutDrawables";
+  private static final String AUTO_NS = "http://schemas.android.com/apk/res-auto";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final Pattern DIMENSION = Pattern.compile("(-?\\d*\\.?\\d+)(px|dip|dp|sp|pt|in|mm)");
+  private static final Pattern REFERENCE = Pattern.compile("@(?:\\+)?(?:(\\w+):)?(\\w+)/([\\w.]+)");
+  // Same order as GradientDrawable.Orientation and app:shapeGradientAngle
+  private static final String[] ORIENTATIONS = {
+    "TOP_BOTTOM", "TR_BL", "RIGHT_LEFT", "BR_TL", "BOTTOM_TOP", "BL_TR", "LEFT_RIGHT", "TL_BR"
+  };
+  // Same order as flag bits of app:selectorItemXStates, bit 2n is the state at n
+  private static final String[] FLAG_STATES = {
+    "first", "middle", "last", "active", "activated", "accelerated", "checked", "checkable",
+    "enabled", "focused", "pressed", "selected", "single", "hovered", "window_focused"
+  };
+  private static final int ALL_FLAGS = (1 << 30) - 1;
+  private static final int SELECTOR_ITEM_COUNT = 5;
+  // Single state attrs of selector with their states, in order of matching
+  private static final String[][] SINGLE_STATES = {
+    {"selectorStateFirst", "first"},
+    {"selectorStateMiddle", "middle"},
+    {"selectorStateLast", "last"},
+    {"selectorStateActive", "active"},
+    {"selectorStateActivated", "activated"},
+    {"selectorStateAccelerate", "accelerated"},
+    {"selectorStateChecked", "checked"},
+    {"selectorStateCheckable", "checkable"},
+    {"selectorStateEnabled", "enabled"},
+    {"selectorStateFocused", "focused"},
+    {"selectorStatePressed", "pressed"},
+    {"selectorStateSelected", "selected"},
+    {"selectorStateSingle", "single"},
+    {"selectorStateHovered", "hovered"},
+    {"selectorStateWindowFocused", "window_focused"},
+    {"selectorStateNormal", null},
+  };
+
+  // Enum and flag values of folivora attrs, by attr name
+  private final Map<String, Map<String, Integer>> mAttrValues;
+  // State set constants of the generated class, by field name
+  private final Map<String, String> mStateSets = new TreeMap<>();
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 3) {
+      System.err.println("Usage: LayoutDrawableGenerator <manifest> <output dir> <res dir>...");
+      System.exit(1);
+    }
+    final List<File> resDirs = new ArrayList<>();
+    for (int i = 2; i < args.length; i++) {
+      resDirs.add(new File(args[i]));
+    }
+    new LayoutDrawableGenerator().generate(packageOf(new File(args[0])), new File(args[1]), resDirs);
+  }
+
+  LayoutDrawableGenerator() throws IOException, XMLStreamException {
+    try (InputStream in = LayoutDrawableGenerator.class.getResourceAsStream("folivora-attrs.xml")) {
+      if (in == null) throw new IOException("folivora-attrs.xml is missing");
+      mAttrValues = readAttrValues(in);
+    }
+  }
+
+  /**
+   * Generate the factory of layouts in resDirs into outputDir, the class
+   * is always written, even if no element is generated
+   */
+  void generate(String packageName, File outputDir, List<File> resDirs) throws IOException, XMLStreamException {
+    // Layout files by name, layouts found more than once are not generated
+    final Map<String, List<File>> layouts = new TreeMap<>();
+    for (File resDir : resDirs) {
+      final File[] dirs = resDir.listFiles();
+      if (dirs == null) continue;
+      for (File dir : dirs) {
+        if (!dir.isDirectory() || !(dir.getName().equals("layout") || dir.getName().startsWith("layout-"))) {
+          continue;
+        }
+        final File[] files = dir.listFiles();
+        if (files == null) continue;
+        for (File file : files) {
+          if (!file.getName().endsWith(".xml")) continue;
+          final String name = file.getName().substring(0, file.getName().length() - 4);
+          List<File> list = layouts.get(name);
+          if (list == null) {
+            list = new ArrayList<>();
+            layouts.put(name, list);
+          }
+          list.add(file);
+        }
+      }
+    }
+    final Map<String, Map<Integer, String>> generated = new TreeMap<>();
+    for (Map.Entry<String, List<File>> entry : layouts.entrySet()) {
+      final List<File> files = entry.getValue();
+      if (files.size() != 1 || !files.get(0).getParentFile().getName().equals("layout")) continue;
+      final Map<Integer, String> elements = generateLayout(entry.getKey(), files.get(0));
+      if (!elements.isEmpty()) generated.put(entry.getKey(), elements);
+    }
+    final File dir = new File(outputDir, packageName.replace('.', File.separatorChar));
+    if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+    try (Writer writer = new OutputStreamWriter(
+      new FileOutputStream(new File(dir, GENERATED_CLASS_NAME + ".java")), UTF_8)) {
+      writer.write(generateSource(packageName, generated));
+    }
+  }
+
+  /**
+   * @return methods creating drawables of elements in the layout, by line
+   */
+  private Map<Integer, String> generateLayout(String layout, File file) throws IOException, XMLStreamException {
+    final String text = new String(Files.readAllBytes(file.toPath()), UTF_8);
+    final List<Integer> lines = startTagLines(text);
+    final Map<Integer, String> result = new TreeMap<>();
+    final Set<Integer> seen = new HashSet<>();
+    final Set<Integer> ambiguous = new HashSet<>();
+    final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(text));
+    try {
+      int index = 0;
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+        // Data binding rewrites layouts before they are compiled, lines may move
+        if (index == 0 && "layout".equals(reader.getLocalName())) return result;
+        final int line = lines.get(index++);
+        // Elements sharing a line can not be told apart at runtime
+        if (!seen.add(line)) ambiguous.add(line);
+        final String method = generateElement(layout + "_" + line, reader);
+        if (method != null) result.put(line, method);
+      }
+    } finally {
+      reader.close();
+    }
+    result.keySet().removeAll(ambiguous);
+    return result;
+  }
+
+  /**
+   * Line numbers of start tags in document order, a start tag is at the
+   * line of it's '&lt;', as aapt records it
+   */
+  static List<Integer> startTagLines(String text) {
+    final List<Integer> result = new ArrayList<>();
+    int line = 1;
+    int i = 0;
+    final int length = text.length();
+    while (i < length) {
+      final char c = text.charAt(i);
+      if (c == '\n') line++;
+      if (c != '<') {
+        i++;
+        continue;
+      }
+      final int end;
+      if (text.startsWith("<!--", i)) {
+        end = text.indexOf("-->", i) + 3;
+      } else if (text.startsWith("<![CDATA[", i)) {
+        end = text.indexOf("]]>", i) + 3;
+      } else if (text.startsWith("<?", i)) {
+        end = text.indexOf("?>", i) + 2;
+      } else if (text.startsWith("<!", i) || text.startsWith("</", i)) {
+        end = text.indexOf('>', i) + 1;
+      } else {
+        result.add(line);
+        end = tagEnd(text, i);
+      }
+      if (end <= i) break;
+      for (int j = i + 1; j < end; j++) {
+        if (text.charAt(j) == '\n') line++;
+      }
+      i = end;
+    }
+    return result;
+  }
+
+  private static int tagEnd(String text, int start) {
+    char quote = 0;
+    for (int i = start + 1; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (quote != 0) {
+        if (c == quote) quote = 0;
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return a method creating drawable of the element, or null if it is
+   *         left to runtime parsing
+   */
+  private String generateElement(String name, XMLStreamReader reader) {
+    final Map<String, String> values = new HashMap<>();
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      final String ns = reader.getAttributeNamespace(i);
+      final String attr = reader.getAttributeLocalName(i);
+      if (ns == null || ns.isEmpty()) {
+        // Styles may declare folivora attrs as well
+        if ("style".equals(attr)) return null;
+      } else if (AUTO_NS.equals(ns) && mAttrValues.containsKey(attr)) {
+        values.put(attr, reader.getAttributeValue(i).trim());
+      }
+    }
+    final String type = values.get("drawableType");
+    if (type == null
+      || values.containsKey("drawableId")
+      || values.containsKey("drawableName")
+      || values.containsKey("drawableLazy")) {
+      return null;
+    }
+    final String setAs = values.get("setAs");
+    if (setAs != null && !setAs.equals("background")) return null;
+    final StringBuilder sb = new StringBuilder();
+    try {
+      switch (type) {
+        case "shape":
+          sb.append(shapeMethod(name, values, 0));
+          break;
+        case "selector":
+          sb.append(selectorMethod(name, values));
+          break;
+        default:
+          return null;
+      }
+    } catch (UnsupportedValueException e) {
+      return null;
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Same as GradientDrawableParser, gradient colors and bottom corners read
+   * the same attrs as ShapeAttrs does, which crosses end and center colors,
+   * and bottom left and right corners
+   */
+  private String shapeMethod(String name, Map<String, String> values, int index)
+    throws UnsupportedValueException {
+    final String p = index == 0 ? "shape" : "shape" + index;
+    final StringBuilder sb = new StringBuilder();
+    sb.append("  private static Drawable ").append(name).append("(Context ctx) {\n")
+      .append("    final Resources res = ctx.getResources();\n")
+      .append("    final GradientDrawable d = new GradientDrawable();\n")
+      .append("    d.setShape(").append(enumValue(values, p + "Type", 0)).append(");\n");
+    final String size = pixelSize(values, p + "SolidSize", "-1");
+    sb.append("    d.setSize(").append(pixelSize(values, p + "SolidWidth", size)).append(", ")
+      .append(pixelSize(values, p + "SolidHeight", size)).append(");\n")
+      .append("    d.setGradientType(").append(enumValue(values, p + "GradientType", 0)).append(");\n")
+      .append("    d.setGradientRadius(").append(dimension(values, p + "GradientRadius", "0f")).append(");\n")
+      .append("    d.setGradientCenter(").append(floatValue(values, p + "GradientCenterX", "0.5f")).append(", ")
+      .append(floatValue(values, p + "GradientCenterY", "0.5f")).append(");\n")
+      .append("    d.setOrientation(GradientDrawable.Orientation.")
+      .append(ORIENTATIONS[enumValue(values, p + "GradientAngle", 0)]).append(");\n");
+    if (values.containsKey(p + "SolidColor")) {
+      sb.append("    d.setColor(").append(color(values, p + "SolidColor", null)).append(");\n");
+    } else {
+      sb.append("    d.setColors(new int[]{").append(color(values, p + "GradientStartColor", "0"));
+      if (values.containsKey(p + "GradientEndColor")) {
+        sb.append(", ").append(color(values, p + "GradientEndColor", null));
+      }
+      sb.append(", ").append(color(values, p + "GradientCenterColor", "0")).append("});\n");
+    }
+    sb.append("    d.setStroke(").append(pixelSize(values, p + "StrokeWidth", "-1")).append(", ")
+      .append(color(values, p + "StrokeColor", "0xFFFFFFFF")).append(", ")
+      .append(pixelSize(values, p + "StokeDashGap", "0")).append(", ")
+      .append(pixelSize(values, p + "StokeDashWidth", "0")).append(");\n");
+    final String radius = dimension(values, p + "CornerRadius", "0f");
+    if (values.containsKey(p + "CornerRadiusTopLeft")
+      || values.containsKey(p + "CornerRadiusTopRight")
+      || values.containsKey(p + "CornerRadiusBottomRight")
+      || values.containsKey(p + "CornerRadiusBottomLeft")) {
+      sb.append("    final float radius = ").append(radius).append(";\n")
+        .append("    final float topLeft = ").append(dimension(values, p + "CornerRadiusTopLeft", "radius")).append(";\n")
+        .append("    final float topRight = ").append(dimension(values, p + "CornerRadiusTopRight", "radius")).append(";\n")
+        .append("    final float bottomRight = ").append(dimension(values, p + "CornerRadiusBottomLeft", "radius")).append(";\n")
+        .append("    final float bottomLeft = ").append(dimension(values, p + "CornerRadiusBottomRight", "radius")).append(";\n")
+        .append("    d.setCornerRadii(new float[]{topLeft, topLeft, topRight, topRight, ")
+        .append("bottomRight, bottomRight, bottomLeft, bottomLeft});\n");
+    } else {
+      sb.append("    d.setCornerRadius(").append(radius).append(");\n");
+    }
+    sb.append("    return d;\n")
+      .append("  }\n\n");
+    return sb.toString();
+  }
+
+  /**
+   * Same as StateListDrawableParser, nested shapes get methods of their own
+   */
+  private String selectorMethod(String name, Map<String, String> values) throws UnsupportedValueException {
+    final StringBuilder shapes = new StringBuilder();
+    final boolean[] shapeGenerated = new boolean[5];
+    final StringBuilder sb = new StringBuilder();
+    sb.append("  private static Drawable ").append(name).append("(Context ctx) {\n")
+      .append("    final StateListDrawable d = new StateListDrawable();\n");
+    for (int i = 0; i < SELECTOR_ITEM_COUNT; i++) {
+      final String drawableAttr = "selectorItem" + i + "Drawable";
+      if (!values.containsKey(drawableAttr)) continue;
+      final String states = stateSet(flagsValue(values, "selectorItem" + i + "States"));
+      if (states == null) continue;
+      sb.append("    d.addState(").append(states).append(", ")
+        .append(childDrawable(name, values, drawableAttr, shapes, shapeGenerated)).append(");\n");
+    }
+    for (String[] single : SINGLE_STATES) {
+      if (!values.containsKey(single[0])) continue;
+      sb.append("    d.addState(").append(singleStateSet(single[1])).append(", ")
+        .append(childDrawable(name, values, single[0], shapes, shapeGenerated)).append(");\n");
+    }
+    sb.append("    return d;\n")
+      .append("  }\n\n")
+      .append(shapes);
+    return sb.toString();
+  }
+
+  private String childDrawable(String name, Map<String, String> values, String attr,
+                               StringBuilder shapes, boolean[] shapeGenerated) throws UnsupportedValueException {
+    final String value = values.get(attr);
+    final Integer shapeIndex = mAttrValues.get(attr).get(value);
+    if (shapeIndex != null) {
+      // Each state gets it's own instance, as Folivora.getDrawable does
+      final String method = name + "_" + value;
+      if (!shapeGenerated[shapeIndex]) {
+        shapes.append(shapeMethod(method, values, shapeIndex));
+        shapeGenerated[shapeIndex] = true;
+      }
+      return method + "(ctx)";
+    }
+    if (value.startsWith("#")) return "new ColorDrawable(" + colorLiteral(value) + ")";
+    return "drawable(ctx, " + reference(value, "drawable", "mipmap") + ")";
+  }
+
+  private String stateSet(int flags) {
+    final StringBuilder states = new StringBuilder();
+    // Walk set bits only, bit 2n is a state, bit 2n+1 is it's negation
+    for (int f = flags & ALL_FLAGS; f != 0; f &= f - 1) {
+      final int bit = Integer.numberOfTrailingZeros(f);
+      if (states.length() != 0) states.append(", ");
+      if ((bit & 1) != 0) states.append('-');
+      states.append("android.R.attr.state_").append(FLAG_STATES[bit >> 1]);
+    }
+    if (states.length() == 0) return null;
+    final String field = "STATES_" + Integer.toHexString(flags).toUpperCase();
+    mStateSets.put(field, "{" + states + "}");
+    return field;
+  }
+
+  private String singleStateSet(String state) {
+    if (state == null) {
+      mStateSets.put("STATE_NORMAL", "{}");
+      return "STATE_NORMAL";
+    }
+    final String field = "STATE_" + state.toUpperCase();
+    mStateSets.put(field, "{android.R.attr.state_" + state + "}");
+    return field;
+  }
+
+  private int enumValue(Map<String, String> values, String attr, int defValue) throws UnsupportedValueException {
+    final String value = values.get(attr);
+    if (value == null) return defValue;
+    final Integer result = mAttrValues.get(attr).get(value);
+    if (result == null) throw new UnsupportedValueException();
+    return result;
+  }
+
+  private int flagsValue(Map<String, String> values, String attr) throws UnsupportedValueException {
+    final String value = values.get(attr);
+    if (value == null) return 0;
+    int result = 0;
+    for (String flag : value.split("\\|")) {
+      final Integer bits = mAttrValues.get(attr).get(flag.trim());
+      if (bits == null) throw new UnsupportedValueException();
+      result |= bits;
+    }
+    return result;
+  }
+
+  private static String floatValue(Map<String, String> values, String attr, String defValue)
+    throws UnsupportedValueException {
+    final String value = values.get(attr);
+    if (value == null) return defValue;
+    try {
+      return Float.toString(Float.parseFloat(value)) + "f";
+    } catch (NumberFormatException e) {
+      throw new UnsupportedValueException();
+    }
+  }
+
+  private static String color(Map<String, String> values, String attr, String defValue)
+    throws UnsupportedValueException {
+    final String value = values.get(attr);
+    if (value == null) return defValue;
+    if (value.startsWith("#")) return colorLiteral(value);
+    return "color(ctx, " + reference(value, "color") + ")";
+  }
+
+  private static String colorLiteral(String value) throws UnsupportedValueException {
+    final String hex = value.substring(1);
+    if (!hex.matches("[0-9a-fA-F]+")) throw new UnsupportedValueException();
+    final String argb;
+    switch (hex.length()) {
+      case 3:
+      case 4:
+        final StringBuilder sb = new StringBuilder(hex.length() == 3 ? "FF" : "");
+        for (int i = 0; i < hex.length(); i++) {
+          sb.append(hex.charAt(i)).append(hex.charAt(i));
+        }
+        argb = sb.toString();
+        break;
+      case 6:
+        argb = "FF" + hex;
+        break;
+      case 8:
+        argb = hex;
+        break;
+      default:
+        throw new UnsupportedValueException();
+    }
+    return "0x" + argb.toUpperCase();
+  }
+
+  private static String dimension(Map<String, String> values, String attr, String defValue)
+    throws UnsupportedValueException {
+    final String value = values.get(attr);
+    if (value == null) return defValue;
+    final Matcher m = DIMENSION.matcher(value);
+    if (m.matches()) return "dimension(res, " + unit(m.group(2)) + ", " + complexFloat(m.group(1)) + ")";
+    return "res.getDimension(" + reference(value, "dimen") + ")";
+  }
+
+  private static String pixelSize(Map<String, String> values, String attr, String defValue)
+    throws UnsupportedValueException {
+    final String value = values.get(attr);
+    if (value == null) return defValue;
+    final Matcher m = DIMENSION.matcher(value);
+    if (m.matches()) return "pixelSize(res, " + unit(m.group(2)) + ", " + complexFloat(m.group(1)) + ")";
+    return "res.getDimensionPixelSize(" + reference(value, "dimen") + ")";
+  }
+
+  private static String unit(String unit) {
+    switch (unit) {
+      case "px":
+        return "TypedValue.COMPLEX_UNIT_PX";
+      case "dp":
+      case "dip":
+        return "TypedValue.COMPLEX_UNIT_DIP";
+      case "sp":
+        return "TypedValue.COMPLEX_UNIT_SP";
+      case "pt":
+        return "TypedValue.COMPLEX_UNIT_PT";
+      case "in":
+        return "TypedValue.COMPLEX_UNIT_IN";
+      default:
+        return "TypedValue.COMPLEX_UNIT_MM";
+    }
+  }
+
+  /**
+   * Dimensions are compiled into complex values, which keep less precision
+   * than a float, round the value the same way, so generated drawables
+   * are exactly the same as parsed ones
+   */
+  static String complexFloat(String value) {
+    float f = Float.parseFloat(value);
+    final boolean neg = f < 0;
+    if (neg) f = -f;
+    // Rounded in double as aapt does, a float sum may round to even
+    final long bits = (long) (f * (1 << 23) + .5);
+    final int radix;
+    final int shift;
+    if ((bits & 0x7fffff) == 0) {
+      radix = 0;
+      shift = 23;
+    } else if ((bits & 0xffffffffff800000L) == 0) {
+      radix = 3;
+      shift = 0;
+    } else if ((bits & 0xffffffff80000000L) == 0) {
+      radix = 2;
+      shift = 8;
+    } else if ((bits & 0xffffff8000000000L) == 0) {
+      radix = 1;
+      shift = 16;
+    } else {
+      radix = 0;
+      shift = 23;
+    }
+    int mantissa = (int) ((bits >> shift) & 0xffffff);
+    if (neg) mantissa = (-mantissa) & 0xffffff;
+    final int complex = (radix << 4) | (mantissa << 8);
+    // TypedValue.complexToFloat
+    final float mantissaMult = 1.0f / (1 << 8);
+    final float[] radixMults = {
+      1.0f * mantissaMult, 1.0f / (1 << 7) * mantissaMult,
+      1.0f / (1 << 15) * mantissaMult, 1.0f / (1 << 23) * mantissaMult
+    };
+    return Float.toString((complex & (0xffffff << 8)) * radixMults[(complex >> 4) & 0x3]) + "f";
+  }
+
+  /**
+   * @return field of R class the resource reference pointing to
+   */
+  private static String reference(String value, String... types) throws UnsupportedValueException {
+    final Matcher m = REFERENCE.matcher(value);
+    if (!m.matches()) throw new UnsupportedValueException();
+    final String pkg = m.group(1);
+    if (pkg != null && !pkg.equals("android")) throw new UnsupportedValueException();
+    for (String type : types) {
+      if (type.equals(m.group(2))) {
+        return (pkg != null ? "android.R." : "R.") + type + "." + m.group(3).replace('.', '_');
+      }
+    }
+    throw new UnsupportedValueException();
+  }
+
+  private String generateSource(String packageName, Map<String, Map<Integer, String>> layouts) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("// Generated by folivora-compiler from layout files, do not modify.\n");
+    if (!packageName.isEmpty()) sb.append("package ").append(packageName).append(";\n\n");
+    sb.append("import android.content.Context;\n")
+      .append("import android.content.res.Resources;\n")
+      .append("import android.graphics.drawable.ColorDrawable;\n")
+      .append("import android.graphics.drawable.Drawable;\n")
+      .append("import android.graphics.drawable.GradientDrawable;\n")
+      .append("import android.graphics.drawable.StateListDrawable;\n")
+      .append("import android.os.Build;\n")
+      .append("import android.util.SparseIntArray;\n")
+      .append("import android.util.TypedValue;\n\n")
+      .append("import cn.cricin.folivora.LayoutDrawableFactory;\n\n")
+      .append("@SuppressWarnings({\"unused\", \"deprecation\"})\n")
+      .append("public final class ").append(GENERATED_CLASS_NAME).append(" implements LayoutDrawableFactory {\n");
+    for (Map.Entry<String, String> entry : mStateSets.entrySet()) {
+      sb.append("  private static final int[] ").append(entry.getKey())
+        .append(" = ").append(entry.getValue()).append(";\n");
+    }
+    sb.append("  // Index of layouts by resource id, resource ids of libraries are not constant\n")
+      .append("  private final SparseIntArray mLayouts = new SparseIntArray(")
+      .append(layouts.size()).append(");\n\n")
+      .append("  public ").append(GENERATED_CLASS_NAME).append("() {\n");
+    int index = 0;
+    for (String layout : layouts.keySet()) {
+      sb.append("    mLayouts.put(R.layout.").append(layout).append(", ").append(index++).append(");\n");
+    }
+    sb.append("  }\n\n")
+      .append("  @Override\n")
+      .append("  public Drawable newDrawable(Context ctx, int layout, int line) {\n")
+      .append("    switch (mLayouts.get(layout, -1)) {\n");
+    index = 0;
+    for (String layout : layouts.keySet()) {
+      sb.append("      case ").append(index++).append(":\n")
+        .append("        return ").append(layout).append("(ctx, line);\n");
+    }
+    sb.append("      default:\n")
+      .append("        return null;\n")
+      .append("    }\n")
+      .append("  }\n\n");
+    for (Map.Entry<String, Map<Integer, String>> entry : layouts.entrySet()) {
+      final String layout = entry.getKey();
+      sb.append("  private static Drawable ").append(layout).append("(Context ctx, int line) {\n")
+        .append("    switch (line) {\n");
+      for (Integer line : entry.getValue().keySet()) {
+        sb.append("      case ").append(line).append(":\n")
+          .append("        return ").append(layout).append('_').append(line).append("(ctx);\n");
+      }
+      sb.append("      default:\n")
+        .append("        return null;\n")
+        .append("    }\n")
+        .append("  }\n\n");
+      for (String method : entry.getValue().values()) {
+        sb.append(method);
+      }
+    }
+    sb.append("  private static float dimension(Resources res, int unit, float value) {\n")
+      .append("    return TypedValue.applyDimension(unit, value, res.getDisplayMetrics());\n")
+      .append("  }\n\n")
+      .append("  // Same as TypedValue.complexToDimensionPixelSize\n")
+      .append("  private static int pixelSize(Resources res, int unit, float value) {\n")
+      .append("    final float f = dimension(res, unit, value);\n")
+      .append("    final int size = (int) (f >= 0 ? f + 0.5f : f - 0.5f);\n")
+      .append("    if (size != 0) return size;\n")
+      .append("    if (value == 0) return 0;\n")
+      .append("    return value > 0 ? 1 : -1;\n")
+      .append("  }\n\n")
+      .append("  private static int color(Context ctx, int id) {\n")
+      .append("    return Build.VERSION.SDK_INT >= 23 ? ctx.getColor(id) : ctx.getResources().getColor(id);\n")
+      .append("  }\n\n")
+      .append("  private static Drawable drawable(Context ctx, int id) {\n")
+      .append("    return Build.VERSION.SDK_INT >= 21 ? ctx.getDrawable(id) : ctx.getResources().getDrawable(id);\n")
+      .append("  }\n")
+      .append("}\n");
+    return sb.toString();
+  }
+
+  /**
+   * Read enum and flag values of attrs declared in folivora's attrs.xml
+   */
+  private static Map<String, Map<String, Integer>> readAttrValues(InputStream in) throws XMLStreamException {
+    final Map<String, Map<String, Integer>> result = new HashMap<>();
+    final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+    try {
+      Map<String, Integer> current = null;
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+        final String tag = reader.getLocalName();
+        final String name = reader.getAttributeValue(null, "name");
+        if ("attr".equals(tag)) {
+          current = result.get(name);
+          if (current == null) {
+            current = new HashMap<>();
+            result.put(name, current);
+          }
+        } else if (("enum".equals(tag) || "flag".equals(tag)) && current != null) {
+          current.put(name, Integer.decode(reader.getAttributeValue(null, "value")));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return result;
+  }
+
+  private static String packageOf(File manifest) throws IOException, XMLStreamException {
+    try (InputStream in = new FileInputStream(manifest)) {
+      final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+            final String pkg = reader.getAttributeValue(null, "package");
+            if (pkg == null) throw new IOException("No package in " + manifest);
+            return pkg;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    throw new IOException("No manifest element in " + manifest);
+  }
+
+  /** A value only known at runtime, it's element is left to runtime parsing */
+  private static final class UnsupportedValueException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedValueException() {
+      super(null, null, false, false);
+    }
+  }
+}
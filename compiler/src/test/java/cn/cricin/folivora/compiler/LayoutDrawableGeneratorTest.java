@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora.compiler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Scanner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class LayoutDrawableGeneratorTest {
+  @Rule
+  public final TemporaryFolder mTemp = new TemporaryFolder();
+
+  @Test
+  public void startTagLinesSkipCommentsAndCdata() {
+    final String text = "<?xml version=\"1.0\"?>\n"
+      + "<!-- <View/>\n"
+      + "  <View/> -->\n"
+      + "<FrameLayout>\n"
+      + "  <![CDATA[ <View/> ]]>\n"
+      + "  <View/><View/>\n"
+      + "</FrameLayout>\n";
+    assertEquals(Arrays.asList(4, 6, 6), LayoutDrawableGenerator.startTagLines(text));
+  }
+
+  @Test
+  public void startTagLinesSkipQuotedGreaterThan() {
+    final String text = "<LinearLayout>\n"
+      + "  <TextView\n"
+      + "    android:text=\"a > b\"\n"
+      + "    android:hint='c > d'/>\n"
+      + "  <View\n"
+      + "    android:tag=\"\n"
+      + "    >\"/>\n"
+      + "  <View/>\n"
+      + "</LinearLayout>\n";
+    assertEquals(Arrays.asList(1, 2, 5, 8), LayoutDrawableGenerator.startTagLines(text));
+  }
+
+  @Test
+  public void complexFloatRoundsAsTypedValue() {
+    // Values aapt compiles into complex dimensions, read by TypedValue.complexToFloat
+    assertEquals("4.0f", LayoutDrawableGenerator.complexFloat("4"));
+    assertEquals("0.5f", LayoutDrawableGenerator.complexFloat("0.5"));
+    assertEquals("-1.5f", LayoutDrawableGenerator.complexFloat("-1.5"));
+    assertEquals("1000.25f", LayoutDrawableGenerator.complexFloat("1000.25"));
+    assertEquals("0.30000007f", LayoutDrawableGenerator.complexFloat("0.3"));
+    assertEquals("-0.30000007f", LayoutDrawableGenerator.complexFloat("-0.3"));
+    assertEquals("2.6999817f", LayoutDrawableGenerator.complexFloat("2.7"));
+    assertEquals("16.599976f", LayoutDrawableGenerator.complexFloat("16.6"));
+    // Rounds down in double, a float sum would round to even and carry
+    assertEquals("1.0f", LayoutDrawableGenerator.complexFloat("1.0000304"));
+  }
+
+  @Test
+  public void generatesSmallLayout() throws Exception {
+    final File res = new File(LayoutDrawableGeneratorTest.class.getResource("res").toURI());
+    final File out = mTemp.newFolder();
+    new LayoutDrawableGenerator().generate("com.example", out, Collections.singletonList(res));
+    final String generated = new String(Files.readAllBytes(
+      new File(out, "com/example/FolivoraLayoutDrawables.java").toPath()), UTF_8);
+    assertEquals(read("small-layout-drawables.golden"), generated);
+  }
+
+  private static String read(String name) {
+    final InputStream in = LayoutDrawableGeneratorTest.class.getResourceAsStream(name);
+    assertNotNull(name + " is missing", in);
+    try (Scanner scanner = new Scanner(in, "UTF-8")) {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+}
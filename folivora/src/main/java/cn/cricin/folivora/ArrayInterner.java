@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import java.util.Arrays;
+
+/**
+ * ArrayInterner shares immutable arrays handed to drawables, eg, state
+ * sets, corner radii and gradient colors, parsers build them in per thread
+ * scratch buffers and intern the content, an array seen before is returned
+ * without allocating. Interned arrays must never be modified.
+ * <p>
+ * The table is bounded, once it is full, contents not interned yet are
+ * just copied out of the scratch buffer.
+ */
+final class ArrayInterner {
+  // Must be power of two
+  private static final int CAPACITY = 256;
+  private static final int MAX_SIZE = CAPACITY * 3 / 4;
+  private static final int SCRATCH_SIZE = 32;
+
+  private static final int[][] sInts = new int[CAPACITY][];
+  private static final float[][] sFloats = new float[CAPACITY][];
+  private static int sIntCount;
+  private static int sFloatCount;
+
+  private static final ThreadLocal<int[]> sIntScratch = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[SCRATCH_SIZE];
+    }
+  };
+
+  private static final ThreadLocal<float[]> sFloatScratch = new ThreadLocal<float[]>() {
+    @Override
+    protected float[] initialValue() {
+      return new float[SCRATCH_SIZE];
+    }
+  };
+
+  /**
+   * @return int scratch buffer of current thread, it is only valid until
+   * the next intern call of this thread, and should not be used across
+   * nested drawable parsing
+   */
+  static int[] intScratch() {
+    return sIntScratch.get();
+  }
+
+  /**
+   * @return float scratch buffer of current thread, see {@link #intScratch()}
+   */
+  static float[] floatScratch() {
+    return sFloatScratch.get();
+  }
+
+  /**
+   * Intern first length values of buffer
+   *
+   * @return a shared array with the same content, never the buffer itself
+   */
+  static synchronized int[] intern(int[] buffer, int length) {
+    int hash = 1;
+    for (int i = 0; i < length; i++) hash = 31 * hash + buffer[i];
+    int index = spread(hash);
+    int[] candidate;
+    while ((candidate = sInts[index]) != null) {
+      if (candidate.length == length && rangeEquals(candidate, buffer, length)) return candidate;
+      index = (index + 1) & (CAPACITY - 1);
+    }
+    final int[] result = Arrays.copyOf(buffer, length);
+    if (sIntCount < MAX_SIZE) {
+      sInts[index] = result;
+      sIntCount++;
+    }
+    return result;
+  }
+
+  /**
+   * Intern first length values of buffer
+   *
+   * @return a shared array with the same content, never the buffer itself
+   */
+  static synchronized float[] intern(float[] buffer, int length) {
+    int hash = 1;
+    for (int i = 0; i < length; i++) hash = 31 * hash + Float.floatToIntBits(buffer[i]);
+    int index = spread(hash);
+    float[] candidate;
+    while ((candidate = sFloats[index]) != null) {
+      if (candidate.length == length && rangeEquals(candidate, buffer, length)) return candidate;
+      index = (index + 1) & (CAPACITY - 1);
+    }
+    final float[] result = Arrays.copyOf(buffer, length);
+    if (sFloatCount < MAX_SIZE) {
+      sFloats[index] = result;
+      sFloatCount++;
+    }
+    return result;
+  }
+
+  private static int spread(int hash) {
+    return (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+  }
+
+  private static boolean rangeEquals(int[] a, int[] b, int length) {
+    for (int i = 0; i < length; i++) {
+      if (a[i] != b[i]) return false;
+    }
+    return true;
+  }
+
+  private static boolean rangeEquals(float[] a, float[] b, int length) {
+    for (int i = 0; i < length; i++) {
+      if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(b[i])) return false;
+    }
+    return true;
+  }
+
+  private ArrayInterner() {}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+
+import java.util.Arrays;
+
+/**
+ * An AttrStore resolves all folivora attributes of a view tag in a single
+ * {@link Context#obtainStyledAttributes(AttributeSet, int[])} call, over
+ * the merged styleable of all built-in parsers. Parsers read their own
+ * styleable through a {@link StyledAttrs} view of the store, so nested
+ * drawables of a view share the pass instead of resolving theme
+ * attributes again for each styleable.
+ * <p>
+ * The small {@code R.styleable.Folivora} is resolved first, the merged
+ * styleable is resolved only when other styleables are read, so views
+ * hitting drawable cache never pay for it. Stores are pooled, a store
+ * must not be used once recycled.
+ */
+final class AttrStore {
+  private static final int[][] STYLEABLES = {
+    R.styleable.Folivora,
+    R.styleable.Folivora_Shape,
+    R.styleable.Folivora_Shape1,
+    R.styleable.Folivora_Shape2,
+    R.styleable.Folivora_Shape3,
+    R.styleable.Folivora_Shape4,
+    R.styleable.Folivora_Selector,
+    R.styleable.Folivora_Layer,
+    R.styleable.Folivora_Ripple,
+    R.styleable.Folivora_Level,
+    R.styleable.Folivora_Clip,
+    R.styleable.Folivora_Inset,
+    R.styleable.Folivora_Scale,
+    R.styleable.Folivora_Animation,
+  };
+
+  /** Sorted attribute ids of all built-in styleables */
+  static final int[] MERGED;
+  // Per styleable, styleable index to merged index, and the reverse
+  private static final int[][] sToMerged = new int[STYLEABLES.length][];
+  private static final int[][] sFromMerged = new int[STYLEABLES.length][];
+
+  static {
+    int count = 0;
+    for (int[] styleable : STYLEABLES) count += styleable.length;
+    int[] attrs = new int[count];
+    int index = 0;
+    for (int[] styleable : STYLEABLES) {
+      System.arraycopy(styleable, 0, attrs, index, styleable.length);
+      index += styleable.length;
+    }
+    Arrays.sort(attrs);
+    // Drop duplicated attributes shared by styleables
+    int size = 0;
+    for (int i = 0; i < attrs.length; i++) {
+      if (size == 0 || attrs[size - 1] != attrs[i]) attrs[size++] = attrs[i];
+    }
+    MERGED = Arrays.copyOf(attrs, size);
+    for (int i = 0; i < STYLEABLES.length; i++) {
+      final int[] styleable = STYLEABLES[i];
+      final int[] toMerged = new int[styleable.length];
+      final int[] fromMerged = new int[MERGED.length];
+      Arrays.fill(fromMerged, -1);
+      for (int j = 0; j < styleable.length; j++) {
+        toMerged[j] = Arrays.binarySearch(MERGED, styleable[j]);
+        fromMerged[toMerged[j]] = j;
+      }
+      sToMerged[i] = toMerged;
+      sFromMerged[i] = fromMerged;
+    }
+  }
+
+  // Maps R.styleable.Folivora to itself, it is resolved on it's own
+  private static final int[] sHeadIndices = new int[R.styleable.Folivora.length];
+
+  static {
+    for (int i = 0; i < sHeadIndices.length; i++) sHeadIndices[i] = i;
+  }
+
+  private static final int MAX_POOL_SIZE = 8;
+  private static final Object sPoolSync = new Object();
+  private static AttrStore sPool;
+  private static int sPoolSize;
+
+  // Released once the merged styleable is resolved
+  private Context mContext;
+  private AttributeSet mAttrs;
+  private TypedArray mHead;
+  private TypedArray mArray;
+  // Views are kept along with the store, bits of those bound to current arrays
+  private final StyledAttrs[] mViews = new StyledAttrs[STYLEABLES.length];
+  private int mBoundViews;
+  private AttrStore mNext;
+
+  private AttrStore() {}
+
+  static AttrStore obtain(Context ctx, AttributeSet attrs) {
+    final TypedArray head = Folivora.obtainStyledAttributes(ctx, attrs, R.styleable.Folivora);
+    AttrStore store = null;
+    synchronized (sPoolSync) {
+      if (sPool != null) {
+        store = sPool;
+        sPool = store.mNext;
+        store.mNext = null;
+        sPoolSize--;
+      }
+    }
+    if (store == null) store = new AttrStore();
+    store.mContext = ctx;
+    store.mAttrs = attrs;
+    store.mHead = head;
+    return store;
+  }
+
+  /**
+   * Resolve the merged styleable if not yet, the attribute set must be
+   * still valid, so a store kept after inflation of it's element must be
+   * resolved before that
+   */
+  void resolve() {
+    if (mArray != null) return;
+    mArray = Folivora.obtainStyledAttributes(mContext, mAttrs, MERGED);
+    mContext = null;
+    mAttrs = null;
+  }
+
+  /**
+   * @param styleable one of built-in styleables
+   * @return attributes of the styleable, indexed as the styleable
+   */
+  StyledAttrs get(int[] styleable) {
+    for (int i = 0; i < STYLEABLES.length; i++) {
+      if (STYLEABLES[i] != styleable) continue;
+      StyledAttrs view = mViews[i];
+      if ((mBoundViews & (1 << i)) == 0) {
+        final boolean head = styleable == R.styleable.Folivora;
+        if (!head) resolve();
+        final TypedArray array = head ? mHead : mArray;
+        if (view == null) {
+          view = head ? new StyledAttrs(this, array, sHeadIndices, sHeadIndices)
+            : new StyledAttrs(this, array, sToMerged[i], sFromMerged[i]);
+          mViews[i] = view;
+        } else {
+          view.bind(array);
+        }
+        mBoundViews |= 1 << i;
+      }
+      return view;
+    }
+    throw new IllegalArgumentException("Not a folivora styleable");
+  }
+
+  /**
+   * @return true if any resolved value of built-in styleables references a
+   * xml resource, eg, a drawable or a color state list, which may resolve
+   * theme attributes inside
+   */
+  boolean referencesXml() {
+    if (mArray == null) return false;
+    final TypedValue value = new TypedValue();
+    for (int i = 0, count = mArray.getIndexCount(); i < count; i++) {
+      if (!mArray.getValue(mArray.getIndex(i), value)) continue;
+      if (value.type == TypedValue.TYPE_STRING && value.resourceId != 0
+        && value.string != null && value.string.toString().endsWith(".xml")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void recycle() {
+    mHead.recycle();
+    if (mArray != null) mArray.recycle();
+    mHead = null;
+    mArray = null;
+    mContext = null;
+    mAttrs = null;
+    mBoundViews = 0;
+    synchronized (sPoolSync) {
+      if (sPoolSize < MAX_POOL_SIZE) {
+        mNext = sPool;
+        sPool = this;
+        sPoolSize++;
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import java.util.Arrays;
+
+/**
+ * An AttrTable maps indices of a styleable to slots, parsers collect
+ * present slots in a single pass over the attributes actually set, via
+ * {@link StyledAttrs#getIndexCount()} and {@link StyledAttrs#getIndex(int)},
+ * instead of probing every index of the styleable. Slots are numbered in
+ * the order of indices given, so parsers can visit them in a fixed order
+ * regardless of attribute order.
+ */
+final class AttrTable {
+  private final byte[] mSlots;
+
+  /**
+   * @param styleable the styleable
+   * @param indices   indices of interest, at most 64
+   */
+  AttrTable(int[] styleable, int... indices) {
+    if (indices.length > 64) throw new IllegalArgumentException("Too many indices");
+    mSlots = new byte[styleable.length];
+    Arrays.fill(mSlots, (byte) -1);
+    for (int i = 0; i < indices.length; i++) {
+      mSlots[indices[i]] = (byte) i;
+    }
+  }
+
+  /**
+   * @param a attrs of the styleable of this table
+   * @return a mask, bit n is set if the index of slot n has a value
+   */
+  long presentSlots(StyledAttrs a) {
+    long mask = 0;
+    for (int i = 0, count = a.getIndexCount(); i < count; i++) {
+      final int index = a.getIndex(i);
+      if (index < 0 || index >= mSlots.length) continue;
+      final int slot = mSlots[index];
+      if (slot >= 0) mask |= 1L << slot;
+    }
+    return mask;
+  }
+}
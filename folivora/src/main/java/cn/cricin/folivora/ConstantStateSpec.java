@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Adapts {@link Drawable.ConstantState} of drawables created by
+ * {@link DrawableParser}s to a {@link DrawableSpec}
+ */
+final class ConstantStateSpec implements DrawableSpec {
+  private final Drawable.ConstantState mState;
+
+  private ConstantStateSpec(Drawable.ConstantState state) {
+    this.mState = state;
+  }
+
+  /**
+   * @param d a drawable created by parser
+   * @return a spec creating drawables from state of d, or null if the state
+   * does not reproduce d, eg, subclasses without their own state, such as
+   * the auto playing AnimationDrawable, lose their behaviors in copies
+   */
+  static ConstantStateSpec of(Drawable d) {
+    final Drawable.ConstantState state = d.getConstantState();
+    if (state == null || state.newDrawable().getClass() != d.getClass()) return null;
+    return new ConstantStateSpec(state);
+  }
+
+  @Override
+  public Drawable newDrawable(Context ctx) {
+    return mState.newDrawable(ctx.getResources());
+  }
+}
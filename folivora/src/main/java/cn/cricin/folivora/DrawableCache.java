@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.DrawableContainer;
+import android.graphics.drawable.GradientDrawable;
+import android.graphics.drawable.LayerDrawable;
+import android.os.Build;
+import android.util.LruCache;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache holds drawable specs, a drawable spec is resolved
+ * against resources of current configuration, and maybe current theme
+ * if theme attributes are referenced, so these are part of cache keys.
+ * The cache listens configuration changes, entries resolved with theme
+ * attributes under an outdated configuration are dropped, the others
+ * survive and will be hit again if that configuration comes back, eg,
+ * switching between multi-window modes.
+ * <p>
+ * The cache is sized by estimated bytes of cached drawables rather than
+ * entry count, and shrinks itself when the system asks to trim memory.
+ */
+final class DrawableCache implements ComponentCallbacks2 {
+  // Rough memory cost of a drawable and it's state, regardless of content
+  private static final int BASE_SIZE = 256;
+  // Reused by lookups, which run for every view with a drawable id
+  private static final ThreadLocal<Key> sLookupKey = new ThreadLocal<Key>() {
+    @Override
+    protected Key initialValue() {
+      return new Key();
+    }
+  };
+
+  private final Map<Class<?>, DrawableSizeEstimator> mEstimators = new ConcurrentHashMap<>();
+  private final AtomicInteger mHitCount = new AtomicInteger();
+  private final AtomicInteger mMissCount = new AtomicInteger();
+  private volatile LruCache<Key, Entry> mCache;
+  private volatile boolean mCallbacksRegistered;
+  // Configuration seen last, reused while the configuration is unchanged
+  private volatile ConfigKey mConfigKey;
+
+  DrawableCache(int maxBytes) {
+    mCache = newLruCache(maxBytes);
+  }
+
+  /**
+   * @return default cache budget, a small fraction of max heap size
+   */
+  static int defaultMaxBytes() {
+    return (int) Math.min(Runtime.getRuntime().maxMemory() / 128, Integer.MAX_VALUE);
+  }
+
+  private static LruCache<Key, Entry> newLruCache(int maxBytes) {
+    return new LruCache<Key, Entry>(maxBytes) {
+      @Override
+      protected int sizeOf(Key key, Entry value) {
+        return value.mSize;
+      }
+
+      @Override
+      protected void entryRemoved(boolean evicted, Key key, Entry oldValue, Entry newValue) {
+        if (evicted) Metrics.cacheEvicted();
+      }
+    };
+  }
+
+  /**
+   * Change the budget of cache, entries are kept as many as possible
+   *
+   * @param maxBytes max bytes of cache
+   */
+  synchronized void setMaxBytes(int maxBytes) {
+    LruCache<Key, Entry> cache = newLruCache(maxBytes);
+    // Snapshot is ordered from least recently accessed to most recently accessed
+    for (Map.Entry<Key, Entry> entry : mCache.snapshot().entrySet()) {
+      cache.put(entry.getKey(), entry.getValue());
+    }
+    mCache = cache;
+  }
+
+  void registerEstimator(Class<? extends Drawable> drawableClass, DrawableSizeEstimator estimator) {
+    if (estimator == null) {
+      mEstimators.remove(drawableClass);
+    } else {
+      mEstimators.put(drawableClass, estimator);
+    }
+  }
+
+  /**
+   * Lookup a drawable spec resolved under current configuration and theme
+   *
+   * @param ctx current context
+   * @param id  drawable id
+   * @return cached drawable spec or null
+   */
+  DrawableSpec get(Context ctx, String id) {
+    registerCallbacks(ctx);
+    final ConfigKey configKey = configurationKey(ctx.getResources());
+    final LruCache<Key, Entry> cache = mCache;
+    final Key key = sLookupKey.get();
+    Entry entry;
+    try {
+      entry = cache.get(key.set(id, configKey, null));
+      if (entry == null) {
+        entry = cache.get(key.set(id, configKey, ctx.getTheme()));
+      }
+    } finally {
+      // The thread should not keep the theme reachable
+      key.clear();
+    }
+    final DrawableSpec spec = entry != null ? entry.mSpec : null;
+    if (spec != null) {
+      mHitCount.incrementAndGet();
+    } else {
+      mMissCount.incrementAndGet();
+    }
+    return spec;
+  }
+
+  /**
+   * Put a drawable spec into cache
+   *
+   * @param ctx      context which the spec resolved with
+   * @param id       drawable id
+   * @param themed   true if theme attributes are involved in resolving
+   * @param spec     the spec
+   * @param drawable a drawable created from the spec, for size estimation
+   */
+  void put(Context ctx, String id, boolean themed, DrawableSpec spec, Drawable drawable) {
+    final ConfigKey configKey = configurationKey(ctx.getResources());
+    final Entry entry = new Entry(spec, Math.max(1, estimate(drawable)));
+    mCache.put(new Key(id, configKey, themed ? new WeakReference<>(ctx.getTheme()) : null), entry);
+  }
+
+  /**
+   * Estimate memory cost of a drawable, registered estimators of drawable
+   * class or it's super classes takes priority over default estimation
+   */
+  int estimate(Drawable d) {
+    if (d == null) return 0;
+    if (!mEstimators.isEmpty()) {
+      for (Class<?> c = d.getClass(); c != Drawable.class && c != null; c = c.getSuperclass()) {
+        DrawableSizeEstimator estimator = mEstimators.get(c);
+        if (estimator != null) return estimator.estimate(d);
+      }
+    }
+    if (d instanceof GradientDrawable || d instanceof ColorDrawable) {
+      return BASE_SIZE;
+    }
+    if (d instanceof BitmapDrawable) {
+      final Bitmap bitmap = ((BitmapDrawable) d).getBitmap();
+      return BASE_SIZE + (bitmap != null ? bitmap.getByteCount() : 0);
+    }
+    if (d instanceof LayerDrawable) {
+      final LayerDrawable ld = (LayerDrawable) d;
+      int size = BASE_SIZE;
+      for (int i = 0, count = ld.getNumberOfLayers(); i < count; i++) {
+        size += estimate(ld.getDrawable(i));
+      }
+      return size;
+    }
+    final Drawable.ConstantState state = d.getConstantState();
+    if (d instanceof DrawableContainer && state instanceof DrawableContainer.DrawableContainerState) {
+      final DrawableContainer.DrawableContainerState dcs = (DrawableContainer.DrawableContainerState) state;
+      final Drawable[] children = dcs.getChildren();
+      int size = BASE_SIZE;
+      for (int i = 0, count = dcs.getChildCount(); i < count; i++) {
+        size += estimate(children[i]);
+      }
+      return size;
+    }
+    // Unknown drawables, assumes it is backed by pixels of it's intrinsic size
+    final int width = d.getIntrinsicWidth();
+    final int height = d.getIntrinsicHeight();
+    return BASE_SIZE + (width > 0 && height > 0 ? width * height * 4 : 0);
+  }
+
+  int hitCount() {
+    return mHitCount.get();
+  }
+
+  int missCount() {
+    return mMissCount.get();
+  }
+
+  private void registerCallbacks(Context ctx) {
+    if (mCallbacksRegistered) return;
+    synchronized (this) {
+      if (mCallbacksRegistered) return;
+      final Context appContext = ctx.getApplicationContext();
+      if (appContext != null) {
+        appContext.registerComponentCallbacks(this);
+      }
+      mCallbacksRegistered = true;
+    }
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {
+    // Themed entries are resolved against theme state of its configuration,
+    // drop those which do not belong to the new configuration
+    final int densityDpi = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 ? newConfig.densityDpi : -1;
+    final LruCache<Key, Entry> cache = mCache;
+    for (Key key : cache.snapshot().keySet()) {
+      if (key.mTheme != null && !key.mConfig.matches(newConfig, densityDpi)) {
+        cache.remove(key);
+      }
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    mCache.evictAll();
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    final LruCache<Key, Entry> cache = mCache;
+    if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+      cache.evictAll();
+    } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+      trimToSize(cache, cache.maxSize() / 2);
+    } else if (level >= TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_MODERATE) {
+      trimToSize(cache, cache.maxSize() * 3 / 4);
+    }
+  }
+
+  private static void trimToSize(LruCache<Key, Entry> cache, int maxBytes) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      cache.trimToSize(maxBytes);
+    } else {
+      cache.evictAll();
+    }
+  }
+
+  private ConfigKey configurationKey(Resources res) {
+    final Configuration config = res.getConfiguration();
+    final int densityDpi = res.getDisplayMetrics().densityDpi;
+    ConfigKey result = mConfigKey;
+    if (result == null || !result.matches(config, densityDpi)) {
+      result = new ConfigKey(config, densityDpi);
+      mConfigKey = result;
+    }
+    return result;
+  }
+
+  private static final class Entry {
+    final DrawableSpec mSpec;
+    final int mSize;
+
+    Entry(DrawableSpec spec, int size) {
+      this.mSpec = spec;
+      this.mSize = size;
+    }
+  }
+
+  /**
+   * Configuration fields which affects resolved drawable values
+   */
+  static final class ConfigKey {
+    final float mFontScale;
+    final int mUiMode;
+    final int mOrientation;
+    final int mSmallestScreenWidthDp;
+    final int mScreenWidthDp;
+    final int mScreenHeightDp;
+    final int mDensityDpi;
+    final int mLayoutDirection;
+    // LocaleList since N, Locale before
+    final Object mLocales;
+    private final int mHashCode;
+
+    ConfigKey(Configuration config, int densityDpi) {
+      this.mFontScale = config.fontScale;
+      this.mUiMode = config.uiMode;
+      this.mOrientation = config.orientation;
+      this.mSmallestScreenWidthDp = config.smallestScreenWidthDp;
+      this.mScreenWidthDp = config.screenWidthDp;
+      this.mScreenHeightDp = config.screenHeightDp;
+      this.mDensityDpi = densityDpi;
+      this.mLayoutDirection = layoutDirection(config);
+      this.mLocales = locales(config);
+      int result = Float.floatToIntBits(mFontScale);
+      result = 31 * result + mUiMode;
+      result = 31 * result + mOrientation;
+      result = 31 * result + mSmallestScreenWidthDp;
+      result = 31 * result + mScreenWidthDp;
+      result = 31 * result + mScreenHeightDp;
+      result = 31 * result + mDensityDpi;
+      result = 31 * result + mLayoutDirection;
+      result = 31 * result + (mLocales != null ? mLocales.hashCode() : 0);
+      this.mHashCode = result;
+    }
+
+    /**
+     * @param config     the configuration
+     * @param densityDpi screen density, or -1 to ignore it
+     * @return true if drawables resolved under the configuration are the same
+     */
+    boolean matches(Configuration config, int densityDpi) {
+      return Float.compare(mFontScale, config.fontScale) == 0
+        && mUiMode == config.uiMode
+        && mOrientation == config.orientation
+        && mSmallestScreenWidthDp == config.smallestScreenWidthDp
+        && mScreenWidthDp == config.screenWidthDp
+        && mScreenHeightDp == config.screenHeightDp
+        && (densityDpi == -1 || mDensityDpi == densityDpi)
+        && mLayoutDirection == layoutDirection(config)
+        && equals(mLocales, locales(config));
+    }
+
+    private static int layoutDirection(Configuration config) {
+      return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 ? config.getLayoutDirection() : 0;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Object locales(Configuration config) {
+      return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? config.getLocales() : config.locale;
+    }
+
+    private static boolean equals(Object a, Object b) {
+      return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof ConfigKey)) return false;
+      ConfigKey key = (ConfigKey) o;
+      return mHashCode == key.mHashCode
+        && Float.compare(mFontScale, key.mFontScale) == 0
+        && mUiMode == key.mUiMode
+        && mOrientation == key.mOrientation
+        && mSmallestScreenWidthDp == key.mSmallestScreenWidthDp
+        && mScreenWidthDp == key.mScreenWidthDp
+        && mScreenHeightDp == key.mScreenHeightDp
+        && mDensityDpi == key.mDensityDpi
+        && mLayoutDirection == key.mLayoutDirection
+        && equals(mLocales, key.mLocales);
+    }
+
+    @Override
+    public int hashCode() {
+      return mHashCode;
+    }
+  }
+
+  /**
+   * Key of cached entries, themed entries are keyed by the theme. Theme
+   * equals by content since M and by identity before, so themed entries
+   * are shared by activities of the same theme since M only. Stored keys
+   * hold themes weakly, entries of a collected theme are never hit again
+   * and go away with least recently used ones.
+   */
+  static final class Key {
+    // Never changed once the key is stored, only lookup keys are reused
+    String mId;
+    ConfigKey mConfig;
+    // Resources.Theme for lookups, a WeakReference of it for stored keys
+    Object mTheme;
+    private int mHashCode;
+
+    Key() {}
+
+    Key(String id, ConfigKey config, Object theme) {
+      set(id, config, theme);
+    }
+
+    Key set(String id, ConfigKey config, Object theme) {
+      this.mId = id;
+      this.mConfig = config;
+      this.mTheme = theme;
+      final Resources.Theme t = theme();
+      int result = id.hashCode();
+      result = 31 * result + config.hashCode();
+      result = 31 * result + (t != null ? t.hashCode() : 0);
+      this.mHashCode = result;
+      return this;
+    }
+
+    void clear() {
+      this.mId = null;
+      this.mConfig = null;
+      this.mTheme = null;
+    }
+
+    Resources.Theme theme() {
+      if (mTheme instanceof WeakReference) {
+        return (Resources.Theme) ((WeakReference<?>) mTheme).get();
+      }
+      return (Resources.Theme) mTheme;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      if (mHashCode != key.mHashCode || !mId.equals(key.mId) || !mConfig.equals(key.mConfig)) {
+        return false;
+      }
+      if (mTheme == null || key.mTheme == null) return mTheme == key.mTheme;
+      final Resources.Theme theme = theme();
+      return theme != null && theme.equals(key.theme());
+    }
+
+    @Override
+    public int hashCode() {
+      return mHashCode;
+    }
+  }
+}
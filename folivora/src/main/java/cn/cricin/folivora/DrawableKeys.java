@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+
+import java.util.Arrays;
+
+/**
+ * DrawableKeys builds canonical cache keys from the attributes of view
+ * tag, two view tags describing the same drawable produce the same key,
+ * regardless of attribute order, so they can share one drawable state
+ * without setting a drawableId.
+ */
+final class DrawableKeys {
+  // Prefix of generated keys, xml attribute values can not contain '\0'
+  // so generated keys never conflicts with user defined drawableIds
+  private static final char AUTO_KEY_PREFIX = '\0';
+  private static final int ANDROID_PACKAGE_ID = 0x01;
+  private static final ThreadLocal<TypedValue> sValue = new ThreadLocal<TypedValue>() {
+    @Override
+    protected TypedValue initialValue() {
+      return new TypedValue();
+    }
+  };
+
+  /**
+   * Build a content key for a drawable described by attrs.
+   *
+   * @param attrs   attributes from view tag
+   * @param builtIn true if the drawable is parsed by built-in parsers, only
+   *                folivora attrs are took into account, otherwise all non
+   *                framework attrs are, since custom drawables may read
+   *                any of them
+   * @return a canonical key, or null if the drawable can not be keyed
+   */
+  static String contentKey(AttributeSet attrs, boolean builtIn) {
+    final int count = attrs.getAttributeCount();
+    final long[] entries = new long[count];
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      final int nameRes = attrs.getAttributeNameResource(i);
+      // Can not tell what this attribute is, give up
+      if (nameRes == 0) return null;
+      if (nameRes == R.attr.drawableId || nameRes == R.attr.setAs
+        || nameRes == R.attr.drawableLazy) continue;
+      if (!isDrawableAttr(nameRes, builtIn)) continue;
+      // Sort by attribute id, but remember where it comes from
+      entries[size++] = ((long) nameRes << 32) | i;
+    }
+    Arrays.sort(entries, 0, size);
+
+    StringBuilder sb = new StringBuilder(16 * size + 16);
+    sb.append(AUTO_KEY_PREFIX).append(builtIn ? 'b' : 'c');
+    final int style = attrs.getStyleAttribute();
+    if (style != 0) {
+      sb.append("|style=").append(Integer.toHexString(style));
+    }
+    for (int i = 0; i < size; i++) {
+      final int index = (int) entries[i];
+      final String value = attrs.getAttributeValue(index);
+      sb.append('|')
+        .append(Integer.toHexString((int) (entries[i] >>> 32)))
+        .append('=')
+        .append(value);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Build a key for a shape from it's resolved attribute values, nested
+   * shapes(shape1, shape2...) with the same values produce the same key,
+   * no matter which slot or view tag they come from. Theme attributes are
+   * resolved already, so the key does not depend on theme.
+   *
+   * @param a          attrs of the shape's styleable
+   * @param shapeAttrs indexes of shape attributes
+   * @return a key, or null if any value references a resource file, eg,
+   * a color state list, which can not be keyed by value
+   */
+  static String shapeKey(StyledAttrs a, ShapeAttrs shapeAttrs) {
+    final TypedValue value = sValue.get();
+    final int[] indices = shapeAttrs.mIndices;
+    StringBuilder sb = new StringBuilder(64);
+    sb.append(AUTO_KEY_PREFIX).append('s');
+    for (int i = 0; i < indices.length; i++) {
+      if (!a.getValue(indices[i], value)) continue;
+      if (value.type == TypedValue.TYPE_STRING) return null;
+      sb.append('|')
+        .append(i)
+        .append('=')
+        .append(Integer.toHexString(value.type))
+        .append(':')
+        .append(Integer.toHexString(value.data));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Check whether the drawable described by attrs resolves theme attributes,
+   * a style attribute is treated as themed, since styles may reference them
+   *
+   * @param attrs   attributes from view tag
+   * @param builtIn true if the drawable is parsed by built-in parsers
+   * @return true if the drawable depends on current theme
+   */
+  static boolean isThemed(AttributeSet attrs, boolean builtIn) {
+    if (attrs.getStyleAttribute() != 0) return true;
+    for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+      final int nameRes = attrs.getAttributeNameResource(i);
+      if (nameRes != 0 && !isDrawableAttr(nameRes, builtIn)) continue;
+      final String value = attrs.getAttributeValue(i);
+      if (value != null && value.length() > 0 && value.charAt(0) == '?') return true;
+    }
+    return false;
+  }
+
+  /**
+   * Check whether a parsed drawable depends on current theme in ways its
+   * view tag does not tell, eg, {@code @color/x} referencing a color state
+   * list which uses theme attributes inside
+   *
+   * @param store attributes the drawable is parsed from
+   * @param d     the parsed drawable
+   * @return true if the drawable may depend on current theme
+   */
+  static boolean isThemed(AttrStore store, Drawable d) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && d.canApplyTheme()) return true;
+    return store.referencesXml();
+  }
+
+  private static boolean isDrawableAttr(int nameRes, boolean builtIn) {
+    if (builtIn) {
+      return Arrays.binarySearch(AttrStore.MERGED, nameRes) >= 0;
+    }
+    return (nameRes >>> 24) != ANDROID_PACKAGE_ID;
+  }
+
+  private DrawableKeys() {}
+}
@@ -18,7 +18,6 @@ package cn.cricin.folivora;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
-import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.drawable.AnimationDrawable;
@@ -34,16 +33,15 @@ import android.graphics.drawable.StateListDrawable;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.util.StateSet;
+import android.util.SparseArray;
 import android.view.Gravity;
 
 import java.lang.reflect.Constructor;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static cn.cricin.folivora.Folivora.TAG;
 import static cn.cricin.folivora.Folivora.getDrawable;
@@ -53,6 +51,10 @@ import static cn.cricin.folivora.Folivora.getDrawable;
  * will find best match DrawableParser to parse a drawable instance
  * for view. each subclass handles one or more drawable parsing when
  * a view want a drawable to decorate self.
+ * <p>
+ * A parser instance is shared by all inflations, {@link #parse(ParseRequest)}
+ * may be called from multiple threads concurrently, so implementations
+ * should not keep mutable state between calls.
  */
 public interface DrawableParser {
 
@@ -102,7 +104,7 @@ public interface DrawableParser {
       final ShapeAttrs shapeAttrs = request.shapeAttrs();
 
       GradientDrawable gd = new GradientDrawable();
-      TypedArray a = ctx.obtainStyledAttributes(attrs, shapeAttrs.mAttrStyleable);
+      StyledAttrs a = request.styledAttrs(shapeAttrs.mAttrStyleable);
       gd.setShape(a.getInt(shapeAttrs.mShapeType, GradientDrawable.RECTANGLE));
 
       final int size = a.getDimensionPixelSize(shapeAttrs.mShapeSolidSize, -1);
@@ -113,21 +115,28 @@ public interface DrawableParser {
       gd.setGradientRadius(a.getDimension(shapeAttrs.mShapeGradientRadius, 0));
       gd.setGradientCenter(a.getFloat(shapeAttrs.mShapeGradientCenterX, 0.5F),
         a.getFloat(shapeAttrs.mShapeGradientCenterY, 0.5F));
-      int[] gradientColors;
-      final int gradientStartColor = a.getColor(shapeAttrs.mShapeGradientStartColor, 0);
-      final int gradientEndColor = a.getColor(shapeAttrs.mShapeGradientEndColor, 0);
-      final int gradientCenterColor = a.getColor(shapeAttrs.mShapeGradientCenterColor, 0);
-      if (a.hasValue(shapeAttrs.mShapeGradientCenterColor)) {
-        gradientColors = new int[]{gradientStartColor, gradientCenterColor, gradientEndColor};
-      } else {
-        gradientColors = new int[]{gradientStartColor, gradientEndColor};
-      }
-      gd.setColors(gradientColors);
       final int orientationIndex = a.getInt(shapeAttrs.mShapeGradientAngle, 0);
       gd.setOrientation(GradientDrawable.Orientation.values()[orientationIndex]);
 
       if (a.hasValue(shapeAttrs.mShapeSolidColor)) {
+        // Solid color replaces gradient colors, no need to build them
         gd.setColor(a.getColor(shapeAttrs.mShapeSolidColor, Color.WHITE));
+      } else {
+        final int gradientStartColor = a.getColor(shapeAttrs.mShapeGradientStartColor, 0);
+        final int gradientEndColor = a.getColor(shapeAttrs.mShapeGradientEndColor, 0);
+        if (a.hasValue(shapeAttrs.mShapeGradientCenterColor)) {
+          final int gradientCenterColor = a.getColor(shapeAttrs.mShapeGradientCenterColor, 0);
+          final int[] colors = ArrayInterner.intScratch();
+          colors[0] = gradientStartColor;
+          colors[1] = gradientCenterColor;
+          colors[2] = gradientEndColor;
+          gd.setColors(ArrayInterner.intern(colors, 3));
+        } else {
+          final int[] colors = ArrayInterner.intScratch();
+          colors[0] = gradientStartColor;
+          colors[1] = gradientEndColor;
+          gd.setColors(ArrayInterner.intern(colors, 2));
+        }
       }
 
       gd.setStroke(
@@ -137,17 +146,24 @@ public interface DrawableParser {
         a.getDimensionPixelSize(shapeAttrs.mShapeStrokeDashWidth, 0)
       );
       final float radius = a.getDimension(shapeAttrs.mShapeCornerRadius, 0);
-      gd.setCornerRadii(new float[]{
-        a.getDimension(shapeAttrs.mShapeCornerRadiusTopLeft, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusTopLeft, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusTopRight, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusTopRight, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusBottomRight, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusBottomRight, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusBottomLeft, radius),
-        a.getDimension(shapeAttrs.mShapeCornerRadiusBottomLeft, radius),
-      });
-      a.recycle();
+      if (a.hasValue(shapeAttrs.mShapeCornerRadiusTopLeft)
+        || a.hasValue(shapeAttrs.mShapeCornerRadiusTopRight)
+        || a.hasValue(shapeAttrs.mShapeCornerRadiusBottomRight)
+        || a.hasValue(shapeAttrs.mShapeCornerRadiusBottomLeft)) {
+        final float topLeft = a.getDimension(shapeAttrs.mShapeCornerRadiusTopLeft, radius);
+        final float topRight = a.getDimension(shapeAttrs.mShapeCornerRadiusTopRight, radius);
+        final float bottomRight = a.getDimension(shapeAttrs.mShapeCornerRadiusBottomRight, radius);
+        final float bottomLeft = a.getDimension(shapeAttrs.mShapeCornerRadiusBottomLeft, radius);
+        final float[] radii = ArrayInterner.floatScratch();
+        radii[0] = radii[1] = topLeft;
+        radii[2] = radii[3] = topRight;
+        radii[4] = radii[5] = bottomRight;
+        radii[6] = radii[7] = bottomLeft;
+        gd.setCornerRadii(ArrayInterner.intern(radii, 8));
+      } else {
+        // Uniform corners need no radii array
+        gd.setCornerRadius(radius);
+      }
       return gd;
     }
   }
@@ -202,204 +218,146 @@ public interface DrawableParser {
     //private static final int[] STATE_DRAG_CAN_ACCEPT = {android.R.attr.state_drag_can_accept};
     private static final int[] STATE_NORMAL = {};
 
-    // State flags
-    private static final int FIRST = 1;
-    private static final int FIRST_NOT = 1 << 1;
-    private static final int MIDDLE = 1 << 2;
-    private static final int MIDDLE_NOT = 1 << 3;
-    private static final int LAST = 1 << 4;
-    private static final int LAST_NOT = 1 << 5;
-    private static final int ACTIVE = 1 << 6;
-    private static final int ACTIVE_NOT = 1 << 7;
-    private static final int ACTIVATED = 1 << 8;
-    private static final int ACTIVATED_NOT = 1 << 9;
-    private static final int ACCELERATE = 1 << 10;
-    private static final int ACCELERATE_NOT = 1 << 11;
-    private static final int CHECKED = 1 << 12;
-    private static final int CHECKED_NOT = 1 << 13;
-    private static final int CHECKABLE = 1 << 14;
-    private static final int CHECKABLE_NOT = 1 << 15;
-    private static final int ENABLED = 1 << 16;
-    private static final int ENABLED_NOT = 1 << 17;
-    private static final int FOCUSED = 1 << 18;
-    private static final int FOCUSED_NOT = 1 << 19;
-    private static final int PRESSED = 1 << 20;
-    private static final int PRESSED_NOT = 1 << 21;
-    private static final int SELECTED = 1 << 22;
-    private static final int SELECTED_NOT = 1 << 23;
-    private static final int SINGLE = 1 << 24;
-    private static final int SINGLE_NOT = 1 << 25;
-    private static final int HOVERED = 1 << 26;
-    private static final int HOVERED_NOT = 1 << 27;
-    private static final int WINDOW_FOCUSED = 1 << 28;
-    private static final int WINDOW_FOCUSED_NOT = 1 << 29;
-    private static final int[] TEMP_STATE_SET = new int[15];
+    // State flags of selectorItemXStates, bit 2n is the state at n, and bit
+    // 2n+1 is it's negation, keep sync with Folivora_Selector attrs
+    private static final int ALL_FLAGS = (1 << 30) - 1;
+    // States of flags, in order of flag bits
+    private static final int[] FLAG_STATES = {
+      android.R.attr.state_first,
+      android.R.attr.state_middle,
+      android.R.attr.state_last,
+      android.R.attr.state_active,
+      android.R.attr.state_activated,
+      android.R.attr.state_accelerated,
+      android.R.attr.state_checked,
+      android.R.attr.state_checkable,
+      android.R.attr.state_enabled,
+      android.R.attr.state_focused,
+      android.R.attr.state_pressed,
+      android.R.attr.state_selected,
+      android.R.attr.state_single,
+      android.R.attr.state_hovered,
+      android.R.attr.state_window_focused,
+    };
+    // Flag mask to state set, null values are kept for masks without valid flags
+    private static final SparseArray<int[]> sStateSets = new SparseArray<>();
+
+    private static final int ITEM_COUNT = 5;
+    // Slots of items come first, then single states in order of matching
+    private static final AttrTable TABLE = new AttrTable(R.styleable.Folivora_Selector,
+      R.styleable.Folivora_Selector_selectorItem0Drawable,
+      R.styleable.Folivora_Selector_selectorItem1Drawable,
+      R.styleable.Folivora_Selector_selectorItem2Drawable,
+      R.styleable.Folivora_Selector_selectorItem3Drawable,
+      R.styleable.Folivora_Selector_selectorItem4Drawable,
+      R.styleable.Folivora_Selector_selectorStateFirst,
+      R.styleable.Folivora_Selector_selectorStateMiddle,
+      R.styleable.Folivora_Selector_selectorStateLast,
+      R.styleable.Folivora_Selector_selectorStateActive,
+      R.styleable.Folivora_Selector_selectorStateActivated,
+      R.styleable.Folivora_Selector_selectorStateAccelerate,
+      R.styleable.Folivora_Selector_selectorStateChecked,
+      R.styleable.Folivora_Selector_selectorStateCheckable,
+      R.styleable.Folivora_Selector_selectorStateEnabled,
+      R.styleable.Folivora_Selector_selectorStateFocused,
+      R.styleable.Folivora_Selector_selectorStatePressed,
+      R.styleable.Folivora_Selector_selectorStateSelected,
+      R.styleable.Folivora_Selector_selectorStateSingle,
+      R.styleable.Folivora_Selector_selectorStateHovered,
+      R.styleable.Folivora_Selector_selectorStateWindowFocused,
+      R.styleable.Folivora_Selector_selectorStateNormal
+    );
+    private static final int[] ITEM_STATES = {
+      R.styleable.Folivora_Selector_selectorItem0States,
+      R.styleable.Folivora_Selector_selectorItem1States,
+      R.styleable.Folivora_Selector_selectorItem2States,
+      R.styleable.Folivora_Selector_selectorItem3States,
+      R.styleable.Folivora_Selector_selectorItem4States,
+    };
+    private static final int[] ITEM_DRAWABLES = {
+      R.styleable.Folivora_Selector_selectorItem0Drawable,
+      R.styleable.Folivora_Selector_selectorItem1Drawable,
+      R.styleable.Folivora_Selector_selectorItem2Drawable,
+      R.styleable.Folivora_Selector_selectorItem3Drawable,
+      R.styleable.Folivora_Selector_selectorItem4Drawable,
+    };
+    private static final int[] SINGLE_STATE_DRAWABLES = {
+      R.styleable.Folivora_Selector_selectorStateFirst,
+      R.styleable.Folivora_Selector_selectorStateMiddle,
+      R.styleable.Folivora_Selector_selectorStateLast,
+      R.styleable.Folivora_Selector_selectorStateActive,
+      R.styleable.Folivora_Selector_selectorStateActivated,
+      R.styleable.Folivora_Selector_selectorStateAccelerate,
+      R.styleable.Folivora_Selector_selectorStateChecked,
+      R.styleable.Folivora_Selector_selectorStateCheckable,
+      R.styleable.Folivora_Selector_selectorStateEnabled,
+      R.styleable.Folivora_Selector_selectorStateFocused,
+      R.styleable.Folivora_Selector_selectorStatePressed,
+      R.styleable.Folivora_Selector_selectorStateSelected,
+      R.styleable.Folivora_Selector_selectorStateSingle,
+      R.styleable.Folivora_Selector_selectorStateHovered,
+      R.styleable.Folivora_Selector_selectorStateWindowFocused,
+      R.styleable.Folivora_Selector_selectorStateNormal,
+    };
+    private static final int[][] SINGLE_STATES = {
+      STATE_FIRST, STATE_MIDDLE, STATE_LAST, STATE_ACTIVE, STATE_ACTIVATED,
+      STATE_ACCELERATE, STATE_CHECKED, STATE_CHECKABLE, STATE_ENABLED,
+      STATE_FOCUSED, STATE_PRESSED, STATE_SELECTED, STATE_SINGLE,
+      STATE_HOVERED, STATE_WINDOW_FOCUSED, STATE_NORMAL,
+    };
 
     @Override
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
       StateListDrawable d = new StateListDrawable();
-      Drawable temp;
-      int[] states;
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Selector);
-      states = parseStateSet(a.getInt(R.styleable.Folivora_Selector_selectorItem0States, 0));
-      if (states != null && (temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorItem0Drawable)) != null) {
-        d.addState(states, temp);
-      }
-      states = parseStateSet(a.getInt(R.styleable.Folivora_Selector_selectorItem1States, 0));
-      if (states != null && (temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorItem1Drawable)) != null) {
-        d.addState(states, temp);
-      }
-      states = parseStateSet(a.getInt(R.styleable.Folivora_Selector_selectorItem2States, 0));
-      if (states != null && (temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorItem2Drawable)) != null) {
-        d.addState(states, temp);
-      }
-      states = parseStateSet(a.getInt(R.styleable.Folivora_Selector_selectorItem3States, 0));
-      if (states != null && (temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorItem3Drawable)) != null) {
-        d.addState(states, temp);
-      }
-      states = parseStateSet(a.getInt(R.styleable.Folivora_Selector_selectorItem4States, 0));
-      if (states != null && (temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorItem4Drawable)) != null) {
-        d.addState(states, temp);
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Selector);
+      // Visit present slots only, in slot order, which is the order of state matching
+      for (long slots = TABLE.presentSlots(a); slots != 0; slots &= slots - 1) {
+        final int slot = Long.numberOfTrailingZeros(slots);
+        if (slot < ITEM_COUNT) {
+          final int[] states = parseStateSet(a.getInt(ITEM_STATES[slot], 0));
+          final Drawable temp;
+          if (states != null && (temp = getDrawable(ctx, a, attrs, ITEM_DRAWABLES[slot])) != null) {
+            d.addState(states, temp);
+          }
+        } else {
+          final Drawable temp = getDrawable(ctx, a, attrs, SINGLE_STATE_DRAWABLES[slot - ITEM_COUNT]);
+          if (temp != null) d.addState(SINGLE_STATES[slot - ITEM_COUNT], temp);
+        }
       }
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateFirst);
-      if (temp != null) d.addState(STATE_FIRST, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateMiddle);
-      if (temp != null) d.addState(STATE_MIDDLE, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateLast);
-      if (temp != null) d.addState(STATE_LAST, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateActive);
-      if (temp != null) d.addState(STATE_ACTIVE, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateActivated);
-      if (temp != null) d.addState(STATE_ACTIVATED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateAccelerate);
-      if (temp != null) d.addState(STATE_ACCELERATE, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateChecked);
-      if (temp != null) d.addState(STATE_CHECKED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateCheckable);
-      if (temp != null) d.addState(STATE_CHECKABLE, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateEnabled);
-      if (temp != null) d.addState(STATE_ENABLED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateFocused);
-      if (temp != null) d.addState(STATE_FOCUSED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStatePressed);
-      if (temp != null) d.addState(STATE_PRESSED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateSelected);
-      if (temp != null) d.addState(STATE_SELECTED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateSingle);
-      if (temp != null) d.addState(STATE_SINGLE, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateHovered);
-      if (temp != null) d.addState(STATE_HOVERED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateWindowFocused);
-      if (temp != null) d.addState(STATE_WINDOW_FOCUSED, temp);
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Selector_selectorStateNormal);
-      if (temp != null) d.addState(STATE_NORMAL, temp);
-      a.recycle();
       return d;
     }
 
     /**
-     * Parse state sets from the stateFlags
+     * Get the state set of stateFlags, state sets are built on first use
+     * and shared by all selectors afterwards
      *
      * @param stateFlags the flags which states combined
      * @return state set or null if absent
      */
     private static int[] parseStateSet(int stateFlags) {
       if (stateFlags == 0) return null;
-      int index = 0;
-      if ((stateFlags & FIRST) == FIRST) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_first;
-      }
-      if ((stateFlags & FIRST_NOT) == FIRST_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_first;
-      }
-      if ((stateFlags & MIDDLE) == MIDDLE) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_middle;
-      }
-      if ((stateFlags & MIDDLE_NOT) == MIDDLE_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_middle;
-      }
-      if ((stateFlags & LAST) == LAST) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_last;
-      }
-      if ((stateFlags & LAST_NOT) == LAST_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_last;
-      }
-      if ((stateFlags & ACTIVE) == ACTIVE) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_active;
-      }
-      if ((stateFlags & ACTIVE_NOT) == ACTIVE_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_active;
-      }
-      if ((stateFlags & ACTIVATED) == ACTIVATED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_activated;
-      }
-      if ((stateFlags & ACTIVATED_NOT) == ACTIVATED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_activated;
-      }
-      if ((stateFlags & ACCELERATE) == ACCELERATE) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_accelerated;
-      }
-      if ((stateFlags & ACCELERATE_NOT) == ACCELERATE_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_accelerated;
-      }
-      if ((stateFlags & CHECKED) == CHECKED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_checked;
-      }
-      if ((stateFlags & CHECKED_NOT) == CHECKED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_checked;
-      }
-      if ((stateFlags & CHECKABLE) == CHECKABLE) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_checkable;
-      }
-      if ((stateFlags & CHECKABLE_NOT) == CHECKABLE_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_checkable;
-      }
-      if ((stateFlags & ENABLED) == ENABLED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_enabled;
-      }
-      if ((stateFlags & ENABLED_NOT) == ENABLED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_enabled;
-      }
-      if ((stateFlags & FOCUSED) == FOCUSED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_focused;
-      }
-      if ((stateFlags & FOCUSED_NOT) == FOCUSED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_focused;
-      }
-      if ((stateFlags & PRESSED) == PRESSED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_pressed;
-      }
-      if ((stateFlags & PRESSED_NOT) == PRESSED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_pressed;
-      }
-      if ((stateFlags & SELECTED) == SELECTED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_selected;
+      synchronized (sStateSets) {
+        final int index = sStateSets.indexOfKey(stateFlags);
+        if (index >= 0) return sStateSets.valueAt(index);
+        final int[] stateSet = buildStateSet(stateFlags);
+        sStateSets.put(stateFlags, stateSet);
+        return stateSet;
       }
-      if ((stateFlags & SELECTED_NOT) == SELECTED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_selected;
-      }
-      if ((stateFlags & SINGLE) == SINGLE) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_single;
-      }
-      if ((stateFlags & SINGLE_NOT) == SINGLE_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_single;
-      }
-      if ((stateFlags & HOVERED) == HOVERED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_hovered;
-      }
-      if ((stateFlags & HOVERED_NOT) == HOVERED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_hovered;
-      }
-      if ((stateFlags & WINDOW_FOCUSED) == WINDOW_FOCUSED) {
-        TEMP_STATE_SET[index++] = android.R.attr.state_window_focused;
-      }
-      if ((stateFlags & WINDOW_FOCUSED_NOT) == WINDOW_FOCUSED_NOT) {
-        TEMP_STATE_SET[index++] = -android.R.attr.state_window_focused;
+    }
+
+    private static int[] buildStateSet(int stateFlags) {
+      final int[] stateSet = ArrayInterner.intScratch();
+      int index = 0;
+      // Walk set bits only, bit 2n is a state, bit 2n+1 is it's negation
+      for (int flags = stateFlags & ALL_FLAGS; flags != 0; flags &= flags - 1) {
+        final int bit = Integer.numberOfTrailingZeros(flags);
+        final int state = FLAG_STATES[bit >> 1];
+        stateSet[index++] = (bit & 1) == 0 ? state : -state;
       }
       if (index == 0) return null;
-      return StateSet.trimStateSet(TEMP_STATE_SET, index);
+      return ArrayInterner.intern(stateSet, index);
     }
   }
 
@@ -443,74 +401,85 @@ public interface DrawableParser {
    * app:layerItem4Bottom         dimension
    */
   class LayerDrawableParser implements DrawableParser {
+    // Attribute indices of each layer item: drawable, insets, left, top, right, bottom
+    private static final int[][] LAYER_ITEMS = {
+      {
+        R.styleable.Folivora_Layer_layerItem0Drawable,
+        R.styleable.Folivora_Layer_layerItem0Insets,
+        R.styleable.Folivora_Layer_layerItem0Left,
+        R.styleable.Folivora_Layer_layerItem0Top,
+        R.styleable.Folivora_Layer_layerItem0Right,
+        R.styleable.Folivora_Layer_layerItem0Bottom,
+      },
+      {
+        R.styleable.Folivora_Layer_layerItem1Drawable,
+        R.styleable.Folivora_Layer_layerItem1Insets,
+        R.styleable.Folivora_Layer_layerItem1Left,
+        R.styleable.Folivora_Layer_layerItem1Top,
+        R.styleable.Folivora_Layer_layerItem1Right,
+        R.styleable.Folivora_Layer_layerItem1Bottom,
+      },
+      {
+        R.styleable.Folivora_Layer_layerItem2Drawable,
+        R.styleable.Folivora_Layer_layerItem2Insets,
+        R.styleable.Folivora_Layer_layerItem2Left,
+        R.styleable.Folivora_Layer_layerItem2Top,
+        R.styleable.Folivora_Layer_layerItem2Right,
+        R.styleable.Folivora_Layer_layerItem2Bottom,
+      },
+      {
+        R.styleable.Folivora_Layer_layerItem3Drawable,
+        R.styleable.Folivora_Layer_layerItem3Insets,
+        R.styleable.Folivora_Layer_layerItem3Left,
+        R.styleable.Folivora_Layer_layerItem3Top,
+        R.styleable.Folivora_Layer_layerItem3Right,
+        R.styleable.Folivora_Layer_layerItem3Bottom,
+      },
+      {
+        R.styleable.Folivora_Layer_layerItem4Drawable,
+        R.styleable.Folivora_Layer_layerItem4Insets,
+        R.styleable.Folivora_Layer_layerItem4Left,
+        R.styleable.Folivora_Layer_layerItem4Top,
+        R.styleable.Folivora_Layer_layerItem4Right,
+        R.styleable.Folivora_Layer_layerItem4Bottom,
+      },
+    };
+    private static final AttrTable TABLE = new AttrTable(R.styleable.Folivora_Layer,
+      R.styleable.Folivora_Layer_layerItem0Drawable,
+      R.styleable.Folivora_Layer_layerItem1Drawable,
+      R.styleable.Folivora_Layer_layerItem2Drawable,
+      R.styleable.Folivora_Layer_layerItem3Drawable,
+      R.styleable.Folivora_Layer_layerItem4Drawable
+    );
+
     @Override
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Layer);
-      List<Drawable> childDrawables = new ArrayList<>(5);
-      List<Rect> childInsets = new ArrayList<>(5);
-
-      Drawable temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Layer_layerItem0Drawable);
-      if (temp != null) {
-        childDrawables.add(temp);
-        int insets = a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem0Insets, 0);
-        childInsets.add(new Rect(
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem0Left, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem0Top, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem0Right, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem0Bottom, insets)
-        ));
-      }
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Layer_layerItem1Drawable);
-      if (temp != null) {
-        childDrawables.add(temp);
-        int insets = a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem1Insets, 0);
-        childInsets.add(new Rect(
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem1Left, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem1Top, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem1Right, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem1Bottom, insets)
-        ));
-      }
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Layer_layerItem2Drawable);
-      if (temp != null) {
-        childDrawables.add(temp);
-        int insets = a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem2Insets, 0);
-        childInsets.add(new Rect(
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem2Left, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem2Top, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem2Right, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem2Bottom, insets)
-        ));
-      }
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Layer_layerItem3Drawable);
-      if (temp != null) {
-        childDrawables.add(temp);
-        int insets = a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem3Insets, 0);
-        childInsets.add(new Rect(
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem3Left, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem3Top, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem3Right, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem3Bottom, insets)
-        ));
-      }
-      temp = getDrawable(ctx, a, attrs, R.styleable.Folivora_Layer_layerItem4Drawable);
-      if (temp != null) {
-        childDrawables.add(temp);
-        int insets = a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem4Insets, 0);
-        childInsets.add(new Rect(
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem4Left, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem4Top, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem4Right, insets),
-          a.getDimensionPixelSize(R.styleable.Folivora_Layer_layerItem4Bottom, insets)
-        ));
-      }
-      a.recycle();
-      LayerDrawable d = new LayerDrawable(childDrawables.toArray(new Drawable[0]));
-      for (int i = 0; i < childInsets.size(); i++) {
-        Rect inset = childInsets.get(i);
-        d.setLayerInset(i, inset.left, inset.top, inset.right, inset.bottom);
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Layer);
+      // Children are collected into an exact sized array which LayerDrawable
+      // takes as is, a mask remembers which items they come from
+      final long present = TABLE.presentSlots(a);
+      Drawable[] children = new Drawable[Long.bitCount(present)];
+      int mask = 0;
+      int count = 0;
+      for (long slots = present; slots != 0; slots &= slots - 1) {
+        final int i = Long.numberOfTrailingZeros(slots);
+        final Drawable child = getDrawable(ctx, a, attrs, LAYER_ITEMS[i][0]);
+        if (child == null) continue;
+        children[count++] = child;
+        mask |= 1 << i;
+      }
+      if (count != children.length) children = Arrays.copyOf(children, count);
+      LayerDrawable d = new LayerDrawable(children);
+      for (int layer = 0; mask != 0; mask &= mask - 1) {
+        final int[] item = LAYER_ITEMS[Integer.numberOfTrailingZeros(mask)];
+        final int insets = a.getDimensionPixelSize(item[1], 0);
+        d.setLayerInset(layer++,
+          a.getDimensionPixelSize(item[2], insets),
+          a.getDimensionPixelSize(item[3], insets),
+          a.getDimensionPixelSize(item[4], insets),
+          a.getDimensionPixelSize(item[5], insets));
       }
       return d;
     }
@@ -532,20 +501,13 @@ public interface DrawableParser {
       final AttributeSet attrs = request.attrs();
       final RippleFallback fallback = request.rippleFallback();
 
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Ripple);
-      ColorStateList color;
-      Drawable content;
-      Drawable mask;
-      try {
-        color = a.getColorStateList(R.styleable.Folivora_Ripple_rippleColor);
-        if (color == null) {
-          throw new IllegalStateException("rippleColor not set");
-        }
-        content = getDrawable(ctx, a, attrs, R.styleable.Folivora_Ripple_rippleContent);
-        mask = getDrawable(ctx, a, attrs, R.styleable.Folivora_Ripple_rippleMask);
-      } finally {
-        a.recycle();
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Ripple);
+      final ColorStateList color = a.getColorStateList(R.styleable.Folivora_Ripple_rippleColor);
+      if (color == null) {
+        throw new IllegalStateException("rippleColor not set");
       }
+      final Drawable content = getDrawable(ctx, a, attrs, R.styleable.Folivora_Ripple_rippleContent);
+      final Drawable mask = getDrawable(ctx, a, attrs, R.styleable.Folivora_Ripple_rippleMask);
 
       if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
         return new RippleDrawable(color, content, mask);
@@ -580,49 +542,53 @@ public interface DrawableParser {
    * app:levelItem4MaxLevel       int
    */
   class LevelListDrawableParser implements DrawableParser {
+    // Attribute indices of each level item: drawable, min level, max level
+    private static final int[][] LEVEL_ITEMS = {
+      {
+        R.styleable.Folivora_Level_levelItem0Drawable,
+        R.styleable.Folivora_Level_levelItem0MinLevel,
+        R.styleable.Folivora_Level_levelItem0MaxLevel,
+      },
+      {
+        R.styleable.Folivora_Level_levelItem1Drawable,
+        R.styleable.Folivora_Level_levelItem1MinLevel,
+        R.styleable.Folivora_Level_levelItem1MaxLevel,
+      },
+      {
+        R.styleable.Folivora_Level_levelItem2Drawable,
+        R.styleable.Folivora_Level_levelItem2MinLevel,
+        R.styleable.Folivora_Level_levelItem2MaxLevel,
+      },
+      {
+        R.styleable.Folivora_Level_levelItem3Drawable,
+        R.styleable.Folivora_Level_levelItem3MinLevel,
+        R.styleable.Folivora_Level_levelItem3MaxLevel,
+      },
+      {
+        R.styleable.Folivora_Level_levelItem4Drawable,
+        R.styleable.Folivora_Level_levelItem4MinLevel,
+        R.styleable.Folivora_Level_levelItem4MaxLevel,
+      },
+    };
+    private static final AttrTable TABLE = new AttrTable(R.styleable.Folivora_Level,
+      R.styleable.Folivora_Level_levelItem0Drawable,
+      R.styleable.Folivora_Level_levelItem1Drawable,
+      R.styleable.Folivora_Level_levelItem2Drawable,
+      R.styleable.Folivora_Level_levelItem3Drawable,
+      R.styleable.Folivora_Level_levelItem4Drawable
+    );
+
     @Override
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
       LevelListDrawable lld = new LevelListDrawable();
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Level);
-      if (a.hasValue(R.styleable.Folivora_Level_levelItem0Drawable)) {
-        lld.addLevel(
-          a.getInt(R.styleable.Folivora_Level_levelItem0MinLevel, 0),
-          a.getInt(R.styleable.Folivora_Level_levelItem0MaxLevel, 0),
-          getDrawable(ctx, a, attrs, R.styleable.Folivora_Level_levelItem0Drawable)
-        );
-      }
-      if (a.hasValue(R.styleable.Folivora_Level_levelItem1Drawable)) {
-        lld.addLevel(
-          a.getInt(R.styleable.Folivora_Level_levelItem1MinLevel, 0),
-          a.getInt(R.styleable.Folivora_Level_levelItem1MaxLevel, 0),
-          getDrawable(ctx, a, attrs, R.styleable.Folivora_Level_levelItem1Drawable)
-        );
-      }
-      if (a.hasValue(R.styleable.Folivora_Level_levelItem2Drawable)) {
-        lld.addLevel(
-          a.getInt(R.styleable.Folivora_Level_levelItem2MinLevel, 0),
-          a.getInt(R.styleable.Folivora_Level_levelItem2MaxLevel, 0),
-          getDrawable(ctx, a, attrs, R.styleable.Folivora_Level_levelItem2Drawable)
-        );
-      }
-      if (a.hasValue(R.styleable.Folivora_Level_levelItem3Drawable)) {
-        lld.addLevel(
-          a.getInt(R.styleable.Folivora_Level_levelItem3MinLevel, 0),
-          a.getInt(R.styleable.Folivora_Level_levelItem3MaxLevel, 0),
-          getDrawable(ctx, a, attrs, R.styleable.Folivora_Level_levelItem3Drawable)
-        );
-      }
-      if (a.hasValue(R.styleable.Folivora_Level_levelItem4Drawable)) {
-        lld.addLevel(
-          a.getInt(R.styleable.Folivora_Level_levelItem4MinLevel, 0),
-          a.getInt(R.styleable.Folivora_Level_levelItem4MaxLevel, 0),
-          getDrawable(ctx, a, attrs, R.styleable.Folivora_Level_levelItem4Drawable)
-        );
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Level);
+      for (long slots = TABLE.presentSlots(a); slots != 0; slots &= slots - 1) {
+        final int[] item = LEVEL_ITEMS[Long.numberOfTrailingZeros(slots)];
+        lld.addLevel(a.getInt(item[1], 0), a.getInt(item[2], 0), getDrawable(ctx, a, attrs, item[0]));
       }
       lld.setLevel(a.getInt(R.styleable.Folivora_Level_levelCurrentLevel, 0));
-      a.recycle();
       return lld;
     }
   }
@@ -641,14 +607,13 @@ public interface DrawableParser {
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Clip);
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Clip);
       final Drawable child = getDrawable(ctx, a, attrs, R.styleable.Folivora_Clip_clipDrawable);
       final int clipGravity = a.getInt(R.styleable.Folivora_Clip_clipGravity, Gravity.START);
       final int clipOrientation = a.getInt(R.styleable.Folivora_Clip_clipOrientation, ClipDrawable.HORIZONTAL);
 
       ClipDrawable cd = new ClipDrawable(child, clipGravity, clipOrientation);
       cd.setLevel(a.getInt(R.styleable.Folivora_Clip_clipLevel, 10000/*no clip*/));
-      a.recycle();
       return cd;
     }
   }
@@ -669,20 +634,14 @@ public interface DrawableParser {
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Inset);
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Inset);
       int insetAll = a.getDimensionPixelSize(R.styleable.Folivora_Inset_insetAll, 0);
-      int[] ints = {
-        R.styleable.Folivora_Inset_insetLeft,
-        R.styleable.Folivora_Inset_insetTop,
-        R.styleable.Folivora_Inset_insetRight,
-        R.styleable.Folivora_Inset_insetBottom
-      };
-      for (int i = 0; i < ints.length; i++) {
-        ints[i] = a.getDimensionPixelSize(ints[i], insetAll);
-      }
+      final int left = a.getDimensionPixelSize(R.styleable.Folivora_Inset_insetLeft, insetAll);
+      final int top = a.getDimensionPixelSize(R.styleable.Folivora_Inset_insetTop, insetAll);
+      final int right = a.getDimensionPixelSize(R.styleable.Folivora_Inset_insetRight, insetAll);
+      final int bottom = a.getDimensionPixelSize(R.styleable.Folivora_Inset_insetBottom, insetAll);
       final Drawable child = getDrawable(ctx, a, attrs, R.styleable.Folivora_Inset_insetDrawable);
-      a.recycle();
-      return new InsetDrawable(child, ints[0], ints[1], ints[2], ints[3]);
+      return new InsetDrawable(child, left, top, right, bottom);
     }
   }
 
@@ -701,7 +660,7 @@ public interface DrawableParser {
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Scale);
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Scale);
       ScaleDrawable sd = new ScaleDrawable(
         getDrawable(ctx, a, attrs, R.styleable.Folivora_Scale_scaleDrawable),
         a.getInt(R.styleable.Folivora_Scale_scaleGravity, Gravity.START),
@@ -709,7 +668,6 @@ public interface DrawableParser {
         a.getFloat(R.styleable.Folivora_Scale_scaleHeight, -1F)
       );
       sd.setLevel(a.getInt(R.styleable.Folivora_Scale_scaleLevel, 1));
-      a.recycle();
       return sd;
     }
   }
@@ -744,13 +702,39 @@ public interface DrawableParser {
    * app:animDuration9            int(millisecond)
    */
   class AnimationDrawableParser implements DrawableParser {
+    private static final int[] FRAMES = {
+      R.styleable.Folivora_Animation_animFrame0,
+      R.styleable.Folivora_Animation_animFrame1,
+      R.styleable.Folivora_Animation_animFrame2,
+      R.styleable.Folivora_Animation_animFrame3,
+      R.styleable.Folivora_Animation_animFrame4,
+      R.styleable.Folivora_Animation_animFrame5,
+      R.styleable.Folivora_Animation_animFrame6,
+      R.styleable.Folivora_Animation_animFrame7,
+      R.styleable.Folivora_Animation_animFrame8,
+      R.styleable.Folivora_Animation_animFrame9,
+    };
+    private static final int[] FRAME_DURATIONS = {
+      R.styleable.Folivora_Animation_animDuration0,
+      R.styleable.Folivora_Animation_animDuration1,
+      R.styleable.Folivora_Animation_animDuration2,
+      R.styleable.Folivora_Animation_animDuration3,
+      R.styleable.Folivora_Animation_animDuration4,
+      R.styleable.Folivora_Animation_animDuration5,
+      R.styleable.Folivora_Animation_animDuration6,
+      R.styleable.Folivora_Animation_animDuration7,
+      R.styleable.Folivora_Animation_animDuration8,
+      R.styleable.Folivora_Animation_animDuration9,
+    };
+    private static final AttrTable TABLE = new AttrTable(R.styleable.Folivora_Animation, FRAMES);
+
     @SuppressWarnings("ConstantConditions")
     @Override
     public Drawable parse(ParseRequest request) {
       final Context ctx = request.context();
       final AttributeSet attrs = request.attrs();
       AnimationDrawable ad;
-      TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora_Animation);
+      StyledAttrs a = request.styledAttrs(R.styleable.Folivora_Animation);
       final boolean autoPlay = a.getBoolean(R.styleable.Folivora_Animation_animAutoPlay, false);
       if (autoPlay) {
         // Workaround for android bug, animation drawable does not played
@@ -776,47 +760,10 @@ public interface DrawableParser {
       ad.setOneShot(a.getBoolean(R.styleable.Folivora_Animation_animOneShot, false));
       final int frameDuration = a.getInt(R.styleable.Folivora_Animation_animDuration, -1);
 
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame0)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame0),
-          a.getInt(R.styleable.Folivora_Animation_animDuration0, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame1)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame1),
-          a.getInt(R.styleable.Folivora_Animation_animDuration1, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame2)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame2),
-          a.getInt(R.styleable.Folivora_Animation_animDuration2, frameDuration));
+      for (long slots = TABLE.presentSlots(a); slots != 0; slots &= slots - 1) {
+        final int frame = Long.numberOfTrailingZeros(slots);
+        ad.addFrame(a.getDrawable(FRAMES[frame]), a.getInt(FRAME_DURATIONS[frame], frameDuration));
       }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame3)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame3),
-          a.getInt(R.styleable.Folivora_Animation_animDuration3, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame4)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame4),
-          a.getInt(R.styleable.Folivora_Animation_animDuration4, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame5)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame5),
-          a.getInt(R.styleable.Folivora_Animation_animDuration5, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame6)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame6),
-          a.getInt(R.styleable.Folivora_Animation_animDuration6, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame7)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame7),
-          a.getInt(R.styleable.Folivora_Animation_animDuration7, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame8)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame8),
-          a.getInt(R.styleable.Folivora_Animation_animDuration8, frameDuration));
-      }
-      if (a.hasValue(R.styleable.Folivora_Animation_animFrame9)) {
-        ad.addFrame(a.getDrawable(R.styleable.Folivora_Animation_animFrame9),
-          a.getInt(R.styleable.Folivora_Animation_animDuration9, frameDuration));
-      }
-      a.recycle();
       return ad;
     }
   }
@@ -829,10 +776,10 @@ public interface DrawableParser {
    */
   class ReflectiveDrawableParser implements DrawableParser {
     // Stuffs for create custom drawable reflectively
-    private static Set<String> sFailedNames = new HashSet<>();
-    private static Class[] sConstructorSignature = {Context.class, AttributeSet.class};
-    private static Object[] sConstructorArgs = new Object[2];
-    private static Map<String, Constructor<? extends Drawable>> sConstructorCache = new HashMap<>();
+    private static final Set<String> sFailedNames =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private static final Class[] sConstructorSignature = {Context.class, AttributeSet.class};
+    private static final Map<String, Constructor<? extends Drawable>> sConstructorCache = new ConcurrentHashMap<>();
 
     @Override
     public Drawable parse(ParseRequest request) {
@@ -851,9 +798,12 @@ public interface DrawableParser {
           constructor.setAccessible(true);
           sConstructorCache.put(drawableName, constructor);
         }
-        sConstructorArgs[0] = ctx;
-        sConstructorArgs[1] = attrs;
-        return constructor.newInstance(sConstructorArgs);
+        final boolean traced = Tracing.begin("Folivora#newDrawable ", drawableName);
+        try {
+          return constructor.newInstance(ctx, attrs);
+        } finally {
+          Tracing.end(traced);
+        }
       } catch (ClassNotFoundException cnfe) {
         sFailedNames.add(drawableName);
         Log.w(TAG, "drawable class [" + drawableName
@@ -869,9 +819,6 @@ public interface DrawableParser {
         throw new AssertionError(iae);//never happen
       } catch (Exception e) {
         Log.w(TAG, "exception occurred instantiating drawable [" + drawableName + "]", e);
-      } finally {
-        sConstructorArgs[0] = null;
-        sConstructorArgs[1] = null;
       }
       return null;
     }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * A DrawableSizeEstimator estimates memory cost of a drawable, folivora
+ * uses this to measure how much of drawable cache budget is taken by a
+ * cached drawable. Register estimators for custom drawables which hold
+ * large resources, eg, bitmaps, to keep the cache in budget.
+ *
+ * @see Folivora#registerDrawableSizeEstimator(Class, DrawableSizeEstimator)
+ * @see Folivora#setDrawableCacheSize(int)
+ */
+public interface DrawableSizeEstimator {
+
+  /**
+   * Estimate memory cost of the given drawable
+   *
+   * @param drawable drawable to estimate
+   * @return size of drawable in bytes, should be positive
+   */
+  int estimate(Drawable drawable);
+}
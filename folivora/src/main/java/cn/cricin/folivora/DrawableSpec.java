@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+/**
+ * A DrawableSpec is an immutable description of a drawable, parsed once
+ * from view tag attrs, and then used to create any number of drawables.
+ * Folivora caches specs, so a drawable can be cached even if it does not
+ * provide a {@link Drawable.ConstantState}. Specs are shared by all views
+ * and threads, and should not hold any view or it's context.
+ *
+ * @see DrawableSpecParser
+ */
+public interface DrawableSpec {
+  /**
+   * Create a new drawable from this spec
+   *
+   * @param ctx context of the view which the drawable will be set to
+   * @return a new drawable instance, never shared with other callers
+   */
+  Drawable newDrawable(Context ctx);
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+/**
+ * A parser contract parsing view tag attrs into a {@link DrawableSpec}
+ * rather than a drawable, register it via
+ * {@link Folivora#registerDrawableSpecParser(Class, DrawableSpecParser)}.
+ * Prefer this over {@link DrawableParser} for custom drawables which do
+ * not implement {@link android.graphics.drawable.Drawable#getConstantState()},
+ * so they can be cached and prewarmed as well. Like DrawableParser,
+ * implementations must be stateless and thread safe.
+ */
+public interface DrawableSpecParser {
+  /**
+   * Parse a drawable spec from request
+   *
+   * @param request parse request, which is recycled after parsing
+   * @return a spec, or null if unable to parse
+   */
+  DrawableSpec parseSpec(ParseRequest request);
+}
@@ -22,19 +22,27 @@ import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.RippleDrawable;
 import android.os.Build;
+import android.os.Process;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.util.LruCache;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Folivora support sets drawable directly in your layout.xml files, no need
@@ -45,6 +53,15 @@ import java.util.Map;
  * Folivora is light weight, you would use {@link #wrap(Context)} wrap()
  * or {@link #installViewFactory(Context)} installViewFactory() to enable
  * folivora functions
+ * <p>
+ * Thread safety: drawable parsing and view creation are safe to run on
+ * multiple threads concurrently, eg, inflating with AsyncLayoutInflater
+ * or a custom inflation pool. Registries like drawable parsers and
+ * listeners may be modified at any time, but it is recommended to set
+ * them up before the first inflation. Note that {@link DrawableParser}
+ * and {@link OnViewCreatedListener} implementations registered to
+ * folivora are also invoked from the inflating thread, which should be
+ * thread safe as well.
  *
  * @see #wrap(Context)
  * @see #installViewFactory(Context)
@@ -72,11 +89,22 @@ public final class Folivora {
   private static final int SET_AS_FOREGROUND = 2;
 
   // Exposed apis
-  private static RippleFallback sRippleFallback;
-  private static List<OnViewCreatedListener> sOnViewCreatedListeners;
-  private static Map<String, DrawableParser> sDrawableParsers = new HashMap<>();
-  private static DrawableParser sReflectiveDrawableParser = new DrawableParser.ReflectiveDrawableParser();
-  private static SparseArray<String> sSystemDrawableNames = new SparseArray<>();
+  private static volatile RippleFallback sRippleFallback;
+  private static final List<OnViewCreatedListener> sOnViewCreatedListeners = new CopyOnWriteArrayList<>();
+  // Replaced on change, so a parse always sees a stable chain
+  private static volatile ParseInterceptor[] sParseInterceptors = new ParseInterceptor[0];
+  // Nesting depth of parses on current thread
+  private static final ThreadLocal<int[]> sParseDepth = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+  private static final Map<String, DrawableParser> sDrawableParsers = new ConcurrentHashMap<>();
+  private static final Map<String, DrawableSpecParser> sDrawableSpecParsers = new ConcurrentHashMap<>();
+  private static final DrawableParser sReflectiveDrawableParser = new DrawableParser.ReflectiveDrawableParser();
+  // Read only after class initialization
+  private static final SparseArray<String> sSystemDrawableNames = new SparseArray<>();
 
   static {
     sDrawableParsers.put("android.graphics.drawable.GradientDrawable", new DrawableParser.GradientDrawableParser());
@@ -101,11 +129,22 @@ public final class Folivora {
 
   }
 
-  // Cached drawables with it's ids
-  private static LruCache<String, Drawable> sDrawableCache = new LruCache<>(128);
+  // Cached drawable constant states with it's ids, configuration and theme
+  private static final DrawableCache sDrawableCache = new DrawableCache(DrawableCache.defaultMaxBytes());
   // Cache is enabled at runtime, but at design time, this should be disabled for work properly
   @SuppressWarnings("FieldCanBeLocal") // This is accessed by layout editor
-  private static boolean sDrawableCacheEnabled = true;
+  private static volatile boolean sDrawableCacheEnabled = true;
+  // Derive drawableId from attrs if absent, this is opt-in
+  private static volatile boolean sAutoDrawableIdEnabled = false;
+  // Drawables generated from layout files at build time, optional
+  private static volatile LayoutDrawableFactory sLayoutDrawableFactory;
+  // Generated drawables bypass parsers, so they are not used once built-in ones are replaced
+  private static volatile boolean sBuiltInParsersReplaced;
+  // Built-in classes whose parsers are replaced, their drawables are never lazy
+  private static final Set<String> sReplacedParsers =
+    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  // Executor for background works, eg, prewarming, created on demand
+  private static Executor sBackgroundExecutor;
 
   /**
    * Try to get a child drawable, if the attrIndex pointing to a specific drawable,
@@ -124,20 +163,80 @@ public final class Folivora {
     Drawable result = null;
     ShapeAttrs shapeAttrs = ShapeAttrs.forIndex(a.getInt(attrIndex, -1));
     if (shapeAttrs != null) {
-      final String className = "android.graphics.drawable.GradientDrawable";
-      DrawableParser parser = sDrawableParsers.get(className);
-      ParseRequest request = new ParseRequest(ctx, attrs, sRippleFallback, shapeAttrs, className);
-      if (parser != null) {
-        result = parser.parse(request);
-      }
+      result = parseShape(ctx, attrs, shapeAttrs, null);
+    }
+    if (result == null) {
+      result = a.getDrawable(attrIndex);
     }
+    return result;
+  }
 
+  /**
+   * Same as {@link #getDrawable(Context, TypedArray, AttributeSet, int)},
+   * used by built-in parsers, nested shapes are read from the same store
+   */
+  static Drawable getDrawable(Context ctx, StyledAttrs a, AttributeSet attrs, int attrIndex) {
+    if (!a.hasValue(attrIndex)) return null;
+    Drawable result = null;
+    ShapeAttrs shapeAttrs = ShapeAttrs.forIndex(a.getInt(attrIndex, -1));
+    if (shapeAttrs != null) {
+      result = parseShape(ctx, attrs, shapeAttrs, a.store());
+    }
     if (result == null) {
       result = a.getDrawable(attrIndex);
     }
     return result;
   }
 
+  private static Drawable parseShape(Context ctx, AttributeSet attrs, ShapeAttrs shapeAttrs, AttrStore store) {
+    final String className = "android.graphics.drawable.GradientDrawable";
+    DrawableParser parser = sDrawableParsers.get(className);
+    if (parser == null) return null;
+    final ParseRequest request = ParseRequest.obtain(ctx, attrs, sRippleFallback, shapeAttrs, className, store);
+    // Shapes are keyed by resolved values, so children of selectors, layers
+    // and ripples share one state with other containers using the same shape
+    String key = null;
+    if (sDrawableCacheEnabled && sAutoDrawableIdEnabled) {
+      key = DrawableKeys.shapeKey(request.styledAttrs(shapeAttrs.mAttrStyleable), shapeAttrs);
+      final DrawableSpec spec = key != null ? sDrawableCache.get(ctx, key) : null;
+      if (spec != null) {
+        request.recycle();
+        return spec.newDrawable(ctx);
+      }
+    }
+    final Drawable d = parse(parser, request);
+    final DrawableSpec spec = d != null && key != null ? ConstantStateSpec.of(d) : null;
+    if (spec == null) return d;
+    sDrawableCache.put(ctx, key, false, spec, d);
+    return spec.newDrawable(ctx);
+  }
+
+  /**
+   * Run a parse through interceptors and the parser, the request is
+   * recycled afterwards
+   */
+  private static Drawable parse(DrawableParser parser, ParseRequest request) {
+    final String className = request.drawableClassName();
+    final boolean traced = Tracing.begin("Folivora#parse ", className);
+    final long start = Metrics.start();
+    final ParseInterceptor[] interceptors = sParseInterceptors;
+    final int[] depth = sParseDepth.get();
+    Drawable result;
+    try {
+      if (interceptors.length == 0) {
+        result = parser.parse(request);
+      } else {
+        result = new ParseChain(interceptors, 0, parser, request, depth[0]++).proceed();
+      }
+    } finally {
+      if (interceptors.length != 0) depth[0]--;
+      Tracing.end(traced);
+      request.recycle();
+    }
+    Metrics.drawableParsed(className, start);
+    return result;
+  }
+
   /**
    * Create a drawable to the specific view with attrs, this method is
    * used by folivora internally, but in order to support preview for
@@ -145,35 +244,43 @@ public final class Folivora {
    *
    * @param view  view of drawable attached
    * @param attrs attributes from view tag
+   * @return true if a drawable is created for the view
    */
-  static void applyDrawableToView(View view, AttributeSet attrs) {
+  static boolean applyDrawableToView(View view, AttributeSet attrs) {
+    // Step0 most views carry no folivora attrs at all, skip TypedArray work for them
+    if (!hasDrawableAttrs(attrs)) return false;
+    final boolean traced = Tracing.begin("Folivora#applyDrawable ", view.getClass().getName());
+    try {
+      return applyDrawableToViewInternal(view, attrs);
+    } finally {
+      Tracing.end(traced);
+    }
+  }
+
+  private static boolean applyDrawableToViewInternal(View view, AttributeSet attrs) {
     final Context ctx = view.getContext();
-    // Step1 extract attrs
-    TypedArray a = ctx.obtainStyledAttributes(attrs, R.styleable.Folivora);
-    int drawableType = a.getInt(R.styleable.Folivora_drawableType, -1);
-    String drawableId = a.getString(R.styleable.Folivora_drawableId);
-    String drawableName = a.getString(R.styleable.Folivora_drawableName);
+    // Generated drawables need no attrs at all, they are generated for backgrounds only
+    final Drawable generated = newGeneratedDrawable(ctx, attrs);
+    if (generated != null) {
+      StartupProfile.record();
+      view.setBackground(generated);
+      return true;
+    }
+    // Step1 extract Folivora attrs, the others are resolved in one pass when parsing
+    final AttrStore store = AttrStore.obtain(ctx, attrs);
+    final StyledAttrs a = store.get(R.styleable.Folivora);
     int setAs = a.getInt(R.styleable.Folivora_setAs, SET_AS_BACKGROUND);
-    a.recycle();
-    if (drawableType < 0 && drawableId == null && drawableName == null) return;
-    // Step2 lookup cached if available
-    Drawable cached = null;
+    // Src of ImageView is measured, it can not be a placeholder
+    final boolean lazy = setAs != SET_AS_SRC && a.getBoolean(R.styleable.Folivora_drawableLazy, false);
     Drawable d = null;
-    if (drawableId != null) {
-      cached = sDrawableCache.get(drawableId);
-      if (cached != null && cached.getConstantState() != null) {
-        cached = cached.getConstantState().newDrawable();
-      }
+    try {
+      d = resolveDrawable(ctx, a, attrs, true, lazy);
+    } finally {
+      // A lazy drawable parses from the store later, it is released there
+      if (!(d instanceof LazyDrawable)) store.recycle();
     }
-    // Step3 try to create a new drawable and cached it
-    if (!sDrawableCacheEnabled || cached == null) {
-      d = createDrawable(ctx, attrs, drawableType, drawableName);
-      if (d != null && d.getConstantState() != null && drawableId != null) {
-        sDrawableCache.put(drawableId, d);
-      }
-    }
-    d = d == null ? cached : d;
-    if (d == null) return;
+    if (d == null) return false;
+    StartupProfile.record();
     // Step4 set drawable to view
     if (setAs == SET_AS_BACKGROUND) {
       view.setBackground(d);
@@ -190,24 +297,226 @@ public final class Folivora {
           + "], Current device platform is lower than MarshMallow");
       }
     }
+    return true;
+  }
+
+  /**
+   * Create drawable of the element inflating with the generated factory
+   *
+   * @return a drawable, or null if the element is not generated
+   */
+  private static Drawable newGeneratedDrawable(Context ctx, AttributeSet attrs) {
+    final LayoutDrawableFactory factory = sLayoutDrawableFactory;
+    if (factory == null || sBuiltInParsersReplaced || sParseInterceptors.length != 0) return null;
+    final int line = FolivoraInflater.currentLine(attrs);
+    if (line <= 0) return null;
+    return factory.newDrawable(ctx, FolivoraInflater.currentLayout(), line);
   }
 
-  private static Drawable createDrawable(Context ctx, AttributeSet attrs, int drawableType, String drawableName) {
-    String realDrawableName = null;
-    if (drawableType >= 0) {
-      realDrawableName = sSystemDrawableNames.get(drawableType);
+  /**
+   * Resolve drawable of a view tag into drawable cache, without creating
+   * any view, this is used by prewarming, which may runs on any thread.
+   * Drawables can not be cached(without a drawableId) are ignored.
+   *
+   * @param ctx   context which views will be inflated with
+   * @param attrs attributes from view tag
+   */
+  static void prepareDrawable(Context ctx, AttributeSet attrs) {
+    if (!sDrawableCacheEnabled || !hasDrawableAttrs(attrs)) return;
+    final AttrStore store = AttrStore.obtain(ctx, attrs);
+    try {
+      resolveDrawable(ctx, store.get(R.styleable.Folivora), attrs, false, false);
+    } finally {
+      store.recycle();
     }
-    if (realDrawableName == null) {
-      realDrawableName = drawableName;
+  }
+
+  /**
+   * Lookup drawable cache or create a new drawable from view tag attrs
+   *
+   * @param ctx         current context
+   * @param a           attrs of Folivora styleable
+   * @param attrs       attributes from view tag
+   * @param newInstance true to get a drawable instance, otherwise only
+   *                    makes sure the drawable is cached
+   * @param lazy        true to defer parsing of built-in drawables to their
+   *                    first draw, a {@link LazyDrawable} owning the store
+   *                    of a is returned in that case
+   * @return a drawable instance, or null if unavailable or not requested
+   */
+  private static Drawable resolveDrawable(Context ctx, StyledAttrs a, AttributeSet attrs,
+                                          boolean newInstance, boolean lazy) {
+    final int drawableType = a.getInt(R.styleable.Folivora_drawableType, -1);
+    String drawableId = a.getString(R.styleable.Folivora_drawableId);
+    final String drawableName = a.getString(R.styleable.Folivora_drawableName);
+    if (drawableType < 0 && drawableId == null && drawableName == null) return null;
+    // Step2 lookup cached if available
+    Drawable d = null;
+    DrawableSpec spec = null;
+    final boolean builtIn = drawableType >= 0 && sSystemDrawableNames.get(drawableType) != null;
+    if (sDrawableCacheEnabled && drawableId == null && sAutoDrawableIdEnabled) {
+      // Elements inflated again are keyed by location, which is cheaper
+      drawableId = FolivoraInflater.locationKey(attrs);
+      if (drawableId == null) drawableId = DrawableKeys.contentKey(attrs, builtIn);
+    }
+    if (!newInstance && drawableId == null) return null;
+    if (sDrawableCacheEnabled && drawableId != null) {
+      final boolean traced = Tracing.begin("Folivora#cacheLookup", null);
+      try {
+        spec = sDrawableCache.get(ctx, drawableId);
+      } finally {
+        Tracing.end(traced);
+      }
+    }
+    // Step3 try to parse a spec and cache it, only the spec is kept in
+    // cache, so no view(and it's context) is retained
+    if (spec == null) {
+      final String className = builtIn ? sSystemDrawableNames.get(drawableType) : drawableName;
+      if (className == null) return null;
+      final DrawableSpecParser specParser = sDrawableSpecParsers.get(className);
+      if (lazy && builtIn && specParser == null && hasStockParser(className)) {
+        // Built-in parsers read nothing but the store, which outlives inflation
+        a.store().resolve();
+        return newLazyDrawable(ctx, className, a.store(),
+          sDrawableCacheEnabled ? drawableId : null, drawableId != null && DrawableKeys.isThemed(attrs, true));
+      }
+      if (specParser != null) {
+        spec = parseSpec(ctx, attrs, specParser, className, a.store());
+        if (spec == null) return null;
+        // Instances created by spec are never shared, it is handed to the view directly
+        d = spec.newDrawable(ctx);
+      } else {
+        d = createDrawable(ctx, attrs, className, a.store());
+        if (d == null) return null;
+        // A cached drawable is only used as a template, since container
+        // drawable's state keeps children bound to it. Drawables which
+        // can not be copied by state are not cached, the view keeps it
+        if (sDrawableCacheEnabled && drawableId != null) {
+          spec = ConstantStateSpec.of(d);
+        }
+      }
+      if (sDrawableCacheEnabled && drawableId != null && spec != null) {
+        final boolean themed = DrawableKeys.isThemed(attrs, builtIn) || DrawableKeys.isThemed(a.store(), d);
+        sDrawableCache.put(ctx, drawableId, themed, spec, d);
+      }
+      if (!newInstance) return null;
+      if (specParser != null) return d;
+    }
+    if (!newInstance) return null;
+    // Each view owns it's instance
+    if (spec != null) {
+      d = spec.newDrawable(ctx);
+    }
+    return d;
+  }
+
+  /**
+   * Whether drawables of a built-in class are parsed by stock parsers only,
+   * a replaced parser may read attrs, which are gone after inflation
+   */
+  private static boolean hasStockParser(String className) {
+    // Nested shapes are parsed by the shape parser, which counts for containers too
+    return !sReplacedParsers.contains(className)
+      && !sReplacedParsers.contains("android.graphics.drawable.GradientDrawable");
+  }
+
+  private static Drawable newLazyDrawable(Context ctx, final String className, final AttrStore store,
+                                          final String drawableId, final boolean themed) {
+    final LazyDrawable result = new LazyDrawable(ctx, new DrawableSpec() {
+      @Override
+      public Drawable newDrawable(Context ctx) {
+        // Called only once by the placeholder, so the store is released here
+        Drawable d;
+        DrawableSpec spec = null;
+        boolean resolvedThemed = false;
+        try {
+          // Placeholders sharing an id may be inflated before any of them is
+          // drawn, the first one created puts it into cache for the others
+          final DrawableSpec cached = drawableId != null ? sDrawableCache.get(ctx, drawableId) : null;
+          if (cached != null) return cached.newDrawable(ctx);
+          d = createDrawable(ctx, null, className, store);
+          if (d != null && drawableId != null) {
+            spec = ConstantStateSpec.of(d);
+            resolvedThemed = spec != null && DrawableKeys.isThemed(store, d);
+          }
+        } finally {
+          store.recycle();
+        }
+        if (spec == null) return d;
+        sDrawableCache.put(ctx, drawableId, themed || resolvedThemed, spec, d);
+        return spec.newDrawable(ctx);
+      }
+    });
+    IdlePreparer.enqueue(result);
+    return result;
+  }
+
+  /**
+   * Obtain styled attributes, folivora calls this rather than calling
+   * {@link Context#obtainStyledAttributes(AttributeSet, int[])} directly,
+   * so the calls are counted in metrics
+   */
+  static TypedArray obtainStyledAttributes(Context ctx, AttributeSet attrs, int[] styleable) {
+    Metrics.styledAttributesObtained();
+    return ctx.obtainStyledAttributes(attrs, styleable);
+  }
+
+  /**
+   * Cheap pre-check before obtaining styled attributes, walks the raw
+   * attribute names of view tag, looking for drawableType, drawableName
+   * and drawableId. A view with style attribute is always considered as
+   * a candidate, since these attrs may be declared in that style.
+   *
+   * @param attrs attributes from view tag
+   * @return true if folivora should go on extracting attrs
+   */
+  private static boolean hasDrawableAttrs(AttributeSet attrs) {
+    if (attrs == null) return false;
+    if (attrs.getStyleAttribute() != 0) return true;
+    for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+      final int nameRes = attrs.getAttributeNameResource(i);
+      if (nameRes == R.attr.drawableType
+        || nameRes == R.attr.drawableName
+        || nameRes == R.attr.drawableId) {
+        return true;
+      }
+      // Attribute resource ids may be unavailable(eg, layout editor), compare names instead
+      if (nameRes == 0) {
+        final String name = attrs.getAttributeName(i);
+        if ("drawableType".equals(name)
+          || "drawableName".equals(name)
+          || "drawableId".equals(name)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static DrawableSpec parseSpec(Context ctx, AttributeSet attrs, DrawableSpecParser parser,
+                                        String className, AttrStore store) {
+    ParseRequest request = ParseRequest.obtain(ctx, attrs, sRippleFallback, ShapeAttrs.forIndex(0), className, store);
+    final boolean traced = Tracing.begin("Folivora#parseSpec ", className);
+    final long start = Metrics.start();
+    DrawableSpec result;
+    try {
+      result = parser.parseSpec(request);
+    } finally {
+      Tracing.end(traced);
+      request.recycle();
     }
-    if (realDrawableName == null) return null;
+    Metrics.drawableParsed(className, start);
+    return result;
+  }
+
+  private static Drawable createDrawable(Context ctx, AttributeSet attrs, String realDrawableName, AttrStore store) {
     DrawableParser parser = sDrawableParsers.get(realDrawableName);
     if (parser == null && !realDrawableName.startsWith("android.graphics.drawable")) {
       parser = sReflectiveDrawableParser;
+      Metrics.reflectiveParse();
     }
     if (parser == null) return null;
-    ParseRequest request = new ParseRequest(ctx, attrs, sRippleFallback, ShapeAttrs.forIndex(0), realDrawableName);
-    return parser.parse(request);
+    return parse(parser, ParseRequest.obtain(ctx, attrs, sRippleFallback, ShapeAttrs.forIndex(0), realDrawableName, store));
   }
 
   /**
@@ -259,6 +568,83 @@ public final class Folivora {
     };
   }
 
+  /**
+   * Prewarm drawables of the given layouts on a background thread.
+   *
+   * @param ctx           context which these layouts will be inflated with,
+   *                      usually the activity, since cached drawables may
+   *                      bound to it's theme
+   * @param layoutResIds  layouts to prewarm
+   * @return the prewarming task, which is cancellable
+   * @see #prewarm(Context, PrewarmTask.Callback, int...)
+   */
+  public static PrewarmTask prewarm(Context ctx, int... layoutResIds) {
+    return prewarm(ctx, null, layoutResIds);
+  }
+
+  /**
+   * Prewarm drawables of the given layouts on a background thread. Folivora
+   * walks these layout files, and resolves drawables which can be cached
+   * (with a drawableId, or any drawable if automatic drawable id is enabled)
+   * into drawable cache, the later inflation of these layouts on main thread
+   * will only hit the cache.
+   *
+   * @param ctx           context which these layouts will be inflated with,
+   *                      usually the activity, since cached drawables may
+   *                      bound to it's theme
+   * @param callback      callback notified on main thread, nullable
+   * @param layoutResIds  layouts to prewarm
+   * @return the prewarming task, which is cancellable
+   * @see #setAutoDrawableIdEnabled(boolean)
+   */
+  public static PrewarmTask prewarm(Context ctx, PrewarmTask.Callback callback, int... layoutResIds) {
+    PrewarmTask task = new PrewarmTask(ctx, callback, layoutResIds);
+    backgroundExecutor().execute(task);
+    return task;
+  }
+
+  /**
+   * Enable profile guided startup prewarming. Folivora records layouts it
+   * created drawables for during the first windowMillis after this call,
+   * and persists them into app's files dir. On next launch, the recorded
+   * layouts are prewarmed on a background thread, alongside the first
+   * setContentView(). This takes effect only once per process, and only
+   * layouts inflated by {@link #wrap(Context)} wrapped contexts through
+   * {@link LayoutInflater#inflate(int, android.view.ViewGroup)} are recorded.
+   *
+   * @param ctx          context which the recorded layouts will be inflated
+   *                     with, usually the launcher activity, call this before
+   *                     it's setContentView()
+   * @param windowMillis length of recording window after launch
+   * @see #prewarm(Context, int...)
+   */
+  public static void enableStartupProfile(Context ctx, long windowMillis) {
+    StartupProfile.start(ctx, windowMillis);
+  }
+
+  static synchronized Executor backgroundExecutor() {
+    if (sBackgroundExecutor == null) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              r.run();
+            }
+          }, "Folivora-Background");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      executor.allowCoreThreadTimeOut(true);
+      sBackgroundExecutor = executor;
+    }
+    return sBackgroundExecutor;
+  }
+
   /**
    * Set a fallback to create substitute drawable when the {@link RippleDrawable}
    * RippleDrawable is not available in current device.
@@ -269,9 +655,188 @@ public final class Folivora {
     sRippleFallback = fallback;
   }
 
+  /**
+   * Enable or disable automatic drawable sharing. When enabled, drawables
+   * without a drawableId are keyed by the attributes describing them,
+   * view tags with identical drawable attributes will share a cached
+   * drawable state, just like they are referencing the same drawableId.
+   * drawables using theme attributes(?attr/xxx) are shared per theme.
+   * <p>
+   * Note that custom drawables are keyed by all non framework attributes
+   * of view tag, since folivora can not tell which attributes are read.
+   * <p>
+   * Elements of layouts inflated by contexts wrapped by {@link #wrap(Context)}
+   * are keyed by their location in layout file instead, so inflating a
+   * layout repeatedly, eg, item views of RecyclerView, parses each drawable
+   * only once.
+   * <p>
+   * Nested shapes(shape1, shape2...) of selectors, layers and other
+   * containers are cached on their own as well, keyed by their resolved
+   * values, so containers combining the same shapes share child states.
+   *
+   * @param enabled true to enable automatic sharing, default is false
+   * @see #getDrawableCacheHitCount()
+   * @see #getDrawableCacheMissCount()
+   */
+  public static void setAutoDrawableIdEnabled(boolean enabled) {
+    sAutoDrawableIdEnabled = enabled;
+  }
+
+  /**
+   * @return true if drawables may be keyed by their location in layouts
+   */
+  static boolean isLocationKeyEnabled() {
+    return sDrawableCacheEnabled && sAutoDrawableIdEnabled;
+  }
+
+  /**
+   * @return number of times a cached drawable state was reused
+   */
+  public static int getDrawableCacheHitCount() {
+    return sDrawableCache.hitCount();
+  }
+
+  /**
+   * @return number of times a drawable is not found in cache and created
+   */
+  public static int getDrawableCacheMissCount() {
+    return sDrawableCache.missCount();
+  }
+
+  /**
+   * Set the budget of drawable cache, in bytes. Cached drawables are
+   * measured by {@link DrawableSizeEstimator}s, the cache also shrinks
+   * itself when the system asks to trim memory. Default budget is
+   * 1/128 of max heap size.
+   *
+   * @param maxBytes max bytes of drawable cache
+   */
+  public static void setDrawableCacheSize(int maxBytes) {
+    if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0");
+    sDrawableCache.setMaxBytes(maxBytes);
+  }
+
+  /**
+   * Register a {@link DrawableSizeEstimator} for drawables of the given
+   * class and it's subclasses, used to measure cost of cached drawables
+   *
+   * @param drawableClass class of drawable
+   * @param estimator     size estimator, or null to remove the registered one
+   */
+  public static void registerDrawableSizeEstimator(Class<? extends Drawable> drawableClass,
+                                                   DrawableSizeEstimator estimator) {
+    sDrawableCache.registerEstimator(drawableClass, estimator);
+  }
+
+  /**
+   * Prepare drawables of {@code app:drawableLazy} views when main thread
+   * is idle. Placeholders are prepared in the order they are inflated,
+   * each idle slot spends at most the budget and leaves the rest to the
+   * next idle slot, so drawables not needed by the first frame are likely
+   * ready before the views are scrolled or expanded into screen.
+   *
+   * @param budgetMillis max milliseconds spent per idle slot, 0 to
+   *                     disable, default is 0
+   */
+  public static void setIdlePrepareBudget(long budgetMillis) {
+    if (budgetMillis < 0) throw new IllegalArgumentException("budgetMillis < 0");
+    IdlePreparer.setBudget(budgetMillis);
+  }
+
+  /**
+   * Set a listener to receive timings of views and drawable parsers, this
+   * also enables counters of folivora, see {@link #getMetrics()}. Metrics
+   * is cheap enough to be enabled in production builds.
+   *
+   * @param l listener to set, or null to disable metrics
+   */
+  public static void setMetricsListener(MetricsListener l) {
+    Metrics.setListener(l);
+  }
+
+  /**
+   * @return a snapshot of folivora counters, drawable cache hits and misses
+   * are always counted, the other counters are updated only when a
+   * {@link MetricsListener} is set
+   * @see #setMetricsListener(MetricsListener)
+   */
+  public static FolivoraMetrics getMetrics() {
+    return Metrics.snapshot(sDrawableCache.hitCount(), sDrawableCache.missCount());
+  }
+
+  /**
+   * Enable or disable trace sections of folivora, when enabled, view
+   * creation, drawable parsing and cache lookups are emitted as
+   * {@link android.os.Trace} sections, named with view classes and
+   * drawable classes, so they can be found in systrace and perfetto.
+   * This takes effect on JellyBean MR2 and above.
+   *
+   * @param enabled true to emit trace sections, default is false
+   */
+  public static void setTraceEnabled(boolean enabled) {
+    Tracing.setEnabled(enabled);
+  }
+
   public static void registerDrawableParser(Class<? extends Drawable> drawableClass, DrawableParser parser) {
     final String className = drawableClass.getCanonicalName();
     sDrawableParsers.put(className, parser);
+    onParserRegistered(className);
+  }
+
+  private static void onParserRegistered(String className) {
+    if (className.startsWith("android.graphics.drawable.")) {
+      sReplacedParsers.add(className);
+    }
+    if ("android.graphics.drawable.GradientDrawable".equals(className)
+      || "android.graphics.drawable.StateListDrawable".equals(className)) {
+      sBuiltInParsersReplaced = true;
+    }
+  }
+
+  /**
+   * Set the factory of drawables generated from layout files at build
+   * time(see README), views of generated elements get their drawables
+   * from it, without obtaining styled attributes or parsing. Only layouts
+   * inflated by resource id, with a context wrapped by {@link #wrap(Context)}
+   * are looked up. The factory is not used while parse interceptors are
+   * added, or after shape or selector parsers are replaced.
+   *
+   * @param factory generated factory, or null to parse all drawables at runtime
+   */
+  public static void setLayoutDrawableFactory(LayoutDrawableFactory factory) {
+    sLayoutDrawableFactory = factory;
+  }
+
+  /**
+   * Register a {@link DrawableSpecParser} for a drawable class, it takes
+   * priority over {@link DrawableParser}s registered for the same class.
+   * Drawables parsed into specs are cached by their specs, regardless of
+   * whether they have a constant state.
+   *
+   * @param drawableClass class of drawable the parser creates
+   * @param parser        the spec parser, null to unregister
+   */
+  public static void registerDrawableSpecParser(Class<? extends Drawable> drawableClass, DrawableSpecParser parser) {
+    final String className = drawableClass.getCanonicalName();
+    if (parser == null) {
+      sDrawableSpecParsers.remove(className);
+    } else {
+      sDrawableSpecParsers.put(className, parser);
+      onParserRegistered(className);
+    }
+  }
+
+  /**
+   * Register a {@link ViewCreator} for a view class, views of this class
+   * are then created by the creator rather than reflection. Frequently
+   * used framework widgets have creators already, register creators for
+   * custom views or support library widgets inflated frequently.
+   *
+   * @param viewClass class of view to create
+   * @param creator   the creator, null to unregister
+   */
+  public static void registerViewCreator(Class<? extends View> viewClass, ViewCreator creator) {
+    FolivoraViewFactory.registerViewCreator(viewClass.getName(), creator);
   }
 
   /**
@@ -282,17 +847,37 @@ public final class Folivora {
    * @param l listener to register
    */
   public static void addOnViewCreatedListener(OnViewCreatedListener l) {
-    if (sOnViewCreatedListeners == null) {
-      sOnViewCreatedListeners = new ArrayList<>();
-    }
     sOnViewCreatedListeners.add(l);
   }
 
+  /**
+   * Add a {@link ParseInterceptor} to folivora, it is called around every
+   * drawable parse afterwards, including nested ones.
+   *
+   * @param interceptor interceptor to add
+   */
+  public static synchronized void addParseInterceptor(ParseInterceptor interceptor) {
+    final ParseInterceptor[] interceptors = sParseInterceptors;
+    final ParseInterceptor[] result = Arrays.copyOf(interceptors, interceptors.length + 1);
+    result[interceptors.length] = interceptor;
+    sParseInterceptors = result;
+  }
+
+  public static synchronized void removeParseInterceptor(ParseInterceptor interceptor) {
+    final ParseInterceptor[] interceptors = sParseInterceptors;
+    for (int i = 0; i < interceptors.length; i++) {
+      if (interceptors[i] != interceptor) continue;
+      final ParseInterceptor[] result = new ParseInterceptor[interceptors.length - 1];
+      System.arraycopy(interceptors, 0, result, 0, i);
+      System.arraycopy(interceptors, i + 1, result, i, result.length - i);
+      sParseInterceptors = result;
+      return;
+    }
+  }
+
   static void dispatchViewCreated(View view, AttributeSet attrs) {
-    if (sOnViewCreatedListeners != null) {
-      for (OnViewCreatedListener l : sOnViewCreatedListeners) {
-        l.onViewCreated(view, attrs);
-      }
+    for (OnViewCreatedListener l : sOnViewCreatedListeners) {
+      l.onViewCreated(view, attrs);
     }
   }
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a custom drawable referenced by {@code app:drawableName}, the
+ * folivora-compiler annotation processor generates a
+ * {@link DrawableParser} calling it's (Context, AttributeSet) constructor
+ * directly, so the drawable is created without reflection. Problems such
+ * as a missing constructor are reported at build time.
+ * <p>
+ * Parsers are generated per package into a {@code FolivoraDrawables}
+ * class, call {@code FolivoraDrawables.register()} before inflation.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface FolivoraDrawable {
+}
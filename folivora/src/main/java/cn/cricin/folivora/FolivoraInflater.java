@@ -17,7 +17,9 @@
 package cn.cricin.folivora;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.util.AttributeSet;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,12 +31,21 @@ import org.xmlpull.v1.XmlPullParser;
  * to {@link FolivoraViewFactory}.
  */
 final class FolivoraInflater extends LayoutInflater {
+  // Prefix of location keys, never conflicts with user defined drawableIds
+  private static final String LOCATION_KEY_PREFIX = "\0l";
   private static final String[] sClassPrefixList = {
     "android.widget.",
     "android.webkit.",
     "android.app."
   };
 
+  private static final ThreadLocal<InflatingLayout> sCurrentLayout = new ThreadLocal<InflatingLayout>() {
+    @Override
+    protected InflatingLayout initialValue() {
+      return new InflatingLayout();
+    }
+  };
+
   FolivoraInflater(Context newContext, LayoutInflater original) {
     super(original, newContext);
   }
@@ -62,27 +73,197 @@ final class FolivoraInflater extends LayoutInflater {
     f.mFactory2 = factory2;
   }
 
+  @Override
+  public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+    // Remember which layout is inflating, views created by nested inflations
+    // belong to the inner layout, so restore the outer one when done
+    final InflatingLayout current = sCurrentLayout.get();
+    final int previous = current.mLayout;
+    final int previousFile = current.mFile;
+    final XmlPullParser previousParser = current.mParser;
+    current.mLayout = resource;
+    // Files are only needed by location keys, which are opt-in
+    current.mFile = Folivora.isLocationKeyEnabled()
+      ? fileOf(getContext().getResources(), resource, current.mValue) : 0;
+    current.mParser = null;
+    try {
+      return super.inflate(resource, root, attachToRoot);
+    } finally {
+      current.mLayout = previous;
+      current.mFile = previousFile;
+      current.mParser = previousParser;
+    }
+  }
+
+  /**
+   * Hash file path of the layout, resources of different configurations
+   * share the layout id, but not the file, eg, layout-land
+   */
+  private static int fileOf(Resources res, int resource, TypedValue value) {
+    try {
+      res.getValue(resource, value, true);
+      return value.string != null ? value.string.hashCode() : 0;
+    } catch (Resources.NotFoundException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Track a layout walked by parser on current thread without inflating,
+   * eg, prewarming, so it's elements get the same location keys as they
+   * are inflated. Current thread must not be inflating any layout, call
+   * {@link #endLayout()} when done.
+   *
+   * @param res    resources the layout is opened with
+   * @param layout resource id of the layout
+   * @param parser parser opened for the layout, which is also the
+   *               attribute set of it's elements
+   */
+  static void beginLayout(Resources res, int layout, XmlPullParser parser) {
+    final InflatingLayout current = sCurrentLayout.get();
+    current.mLayout = layout;
+    current.mFile = fileOf(res, layout, current.mValue);
+    current.mParser = parser;
+  }
+
+  static void endLayout() {
+    final InflatingLayout current = sCurrentLayout.get();
+    current.mLayout = 0;
+    current.mFile = 0;
+    current.mParser = null;
+  }
+
+  /**
+   * @return resource id of layout inflating on current thread, or 0 if unknown
+   */
+  static int currentLayout() {
+    return sCurrentLayout.get().mLayout;
+  }
+
+  /**
+   * @param attrs attributes from view tag
+   * @return line number of the element in layout file, or -1 if attrs
+   *         is not from the layout inflating by resource id
+   */
+  static int currentLine(AttributeSet attrs) {
+    final XmlPullParser parser = sCurrentLayout.get().mParser;
+    if (parser == null || parser != attrs) return -1;
+    return parser.getLineNumber();
+  }
+
+  /**
+   * Build a key identifying the element of attrs in layout files, an
+   * element inflated again(eg, item views of RecyclerView) gets the same
+   * key. Only elements of layouts inflated by resource id are keyed,
+   * elements of included layouts are not, since they are parsed by
+   * other parsers.
+   *
+   * @param attrs attributes from view tag
+   * @return location key, or null if the location is unknown
+   */
+  static String locationKey(AttributeSet attrs) {
+    final InflatingLayout current = sCurrentLayout.get();
+    if (current.mParser == null || current.mParser != attrs || current.mFile == 0) return null;
+    final XmlPullParser parser = current.mParser;
+    final int line = parser.getLineNumber();
+    if (line <= 0) return null;
+    // Line number alone may be ambiguous, elements sharing a line are told
+    // apart by their depth and attribute names
+    int names = 0;
+    final int count = attrs.getAttributeCount();
+    for (int i = 0; i < count; i++) {
+      names = 31 * names + attrs.getAttributeNameResource(i);
+    }
+    final int depth = parser.getDepth();
+    // Keys built before are reused, elements inflated again allocate nothing
+    int hash = 31 * (31 * (31 * (31 * current.mLayout + current.mFile) + line) + depth) + names;
+    hash ^= hash >>> 16;
+    final LocationKey[] keys = current.mKeys;
+    LocationKey key = keys[hash & (keys.length - 1)];
+    if (key == null) {
+      key = new LocationKey();
+      keys[hash & (keys.length - 1)] = key;
+    } else if (key.matches(current.mLayout, current.mFile, line, depth, count, names)) {
+      return key.mValue;
+    }
+    key.mLayout = current.mLayout;
+    key.mFile = current.mFile;
+    key.mLine = line;
+    key.mDepth = depth;
+    key.mCount = count;
+    key.mNames = names;
+    key.mValue = new StringBuilder(48)
+      .append(LOCATION_KEY_PREFIX)
+      .append(Integer.toHexString(current.mLayout)).append(':')
+      .append(Integer.toHexString(current.mFile)).append(':')
+      .append(line).append(':')
+      .append(depth).append(':')
+      .append(count).append(':')
+      .append(Integer.toHexString(names))
+      .toString();
+    return key.mValue;
+  }
+
   @Override
   public View inflate(XmlPullParser parser, ViewGroup root, boolean attachToRoot) {
     Factory2 factory2 = getFactory2();
     if (factory2 == null) {
       super.setFactory2(new FolivoraViewFactory());
     }
-    return super.inflate(parser, root, attachToRoot);
+    // The parser opened for the layout inflating by resource id
+    final InflatingLayout current = sCurrentLayout.get();
+    final boolean layoutParser = current.mLayout != 0 && current.mParser == null;
+    if (layoutParser) current.mParser = parser;
+    try {
+      return super.inflate(parser, root, attachToRoot);
+    } finally {
+      if (layoutParser) current.mParser = null;
+    }
+  }
+
+  private static final class InflatingLayout {
+    final TypedValue mValue = new TypedValue();
+    // Location keys of elements inflated recently, indexed by hash
+    final LocationKey[] mKeys = new LocationKey[64];
+    int mLayout;
+    int mFile;
+    XmlPullParser mParser;
+  }
+
+  private static final class LocationKey {
+    int mLayout;
+    int mFile;
+    int mLine;
+    int mDepth;
+    int mCount;
+    int mNames;
+    String mValue;
+
+    boolean matches(int layout, int file, int line, int depth, int count, int names) {
+      return mLayout == layout && mFile == file && mLine == line
+        && mDepth == depth && mCount == count && mNames == names;
+    }
   }
 
   /** fallback if FolivoraViewFactory could not create views properly */
   @Override
   protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+    final String resolvedPrefix = ViewClasses.prefixOf(name);
+    if (resolvedPrefix != null) {
+      return createView(name, resolvedPrefix, attrs);
+    }
     for (String prefix : sClassPrefixList) {
+      if (ViewClasses.isMissing(prefix + name)) continue;
       try {
         View view = createView(name, prefix, attrs);
         if (view != null) {
+          ViewClasses.onResolved(name, prefix);
           return view;
         }
       } catch (ClassNotFoundException e) {
         // In this case we want to let the base class take a crack
         // at it.
+        ViewClasses.onMissing(prefix + name);
       }
     }
     return super.onCreateView(name, attrs);
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+/**
+ * A snapshot of folivora counters, counters are only updated when
+ * metrics is enabled by setting a {@link MetricsListener}, except cache
+ * hits and misses, which are always counted, they are the same numbers
+ * as {@link Folivora#getDrawableCacheHitCount()} and
+ * {@link Folivora#getDrawableCacheMissCount()}.
+ *
+ * @see Folivora#getMetrics()
+ * @see Folivora#setMetricsListener(MetricsListener)
+ */
+public final class FolivoraMetrics {
+  private final long mStyledAttributesCount;
+  private final long mCacheHitCount;
+  private final long mCacheMissCount;
+  private final long mCacheEvictionCount;
+  private final long mReflectiveParseCount;
+  private final long mClassResolutionMissCount;
+
+  FolivoraMetrics(long styledAttributesCount,
+                  long cacheHitCount,
+                  long cacheMissCount,
+                  long cacheEvictionCount,
+                  long reflectiveParseCount,
+                  long classResolutionMissCount) {
+    this.mStyledAttributesCount = styledAttributesCount;
+    this.mCacheHitCount = cacheHitCount;
+    this.mCacheMissCount = cacheMissCount;
+    this.mCacheEvictionCount = cacheEvictionCount;
+    this.mReflectiveParseCount = reflectiveParseCount;
+    this.mClassResolutionMissCount = classResolutionMissCount;
+  }
+
+  /**
+   * @return count of obtainStyledAttributes() calls made by folivora
+   */
+  public long styledAttributesCount() {
+    return mStyledAttributesCount;
+  }
+
+  /**
+   * @return count of drawable cache hits
+   */
+  public long cacheHitCount() {
+    return mCacheHitCount;
+  }
+
+  /**
+   * @return count of drawable cache misses
+   */
+  public long cacheMissCount() {
+    return mCacheMissCount;
+  }
+
+  /**
+   * @return count of drawables evicted from cache due to cache budget
+   */
+  public long cacheEvictionCount() {
+    return mCacheEvictionCount;
+  }
+
+  /**
+   * @return count of custom drawables created reflectively
+   */
+  public long reflectiveParseCount() {
+    return mReflectiveParseCount;
+  }
+
+  /**
+   * @return count of failed view class lookups when creating views
+   */
+  public long classResolutionMissCount() {
+    return mClassResolutionMissCount;
+  }
+
+  @Override
+  public String toString() {
+    return "FolivoraMetrics{"
+      + "styledAttributes=" + mStyledAttributesCount
+      + ", cacheHit=" + mCacheHitCount
+      + ", cacheMiss=" + mCacheMissCount
+      + ", cacheEviction=" + mCacheEvictionCount
+      + ", reflectiveParse=" + mReflectiveParseCount
+      + ", classResolutionMiss=" + mClassResolutionMissCount
+      + '}';
+  }
+}
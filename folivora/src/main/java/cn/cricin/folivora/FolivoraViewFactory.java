@@ -21,11 +21,26 @@ import android.util.AttributeSet;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.HorizontalScrollView;
+import android.widget.ImageButton;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.RadioButton;
+import android.widget.RelativeLayout;
+import android.widget.ScrollView;
+import android.widget.SeekBar;
+import android.widget.Space;
+import android.widget.TextView;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A view factory takes responsibility of view creation, if the view
@@ -41,8 +56,32 @@ final class FolivoraViewFactory implements LayoutInflater.Factory2 {
 
   private static final Class<?>[] sConstructorSignature = new Class[]{
     Context.class, AttributeSet.class};
-  private static Object[] sConstructorArgs = new Object[2];
-  private static Map<String, Constructor<? extends View>> sConstructorMap = new HashMap<>();
+  private static final Map<String, Constructor<? extends View>> sConstructorMap = new ConcurrentHashMap<>();
+  private static final Map<String, ViewCreator> sViewCreators = new ConcurrentHashMap<>();
+
+  static {
+    final String[] widgets = {
+      "android.widget.TextView",
+      "android.widget.ImageView",
+      "android.widget.Button",
+      "android.widget.EditText",
+      "android.widget.ImageButton",
+      "android.widget.CheckBox",
+      "android.widget.RadioButton",
+      "android.widget.LinearLayout",
+      "android.widget.FrameLayout",
+      "android.widget.RelativeLayout",
+      "android.widget.ScrollView",
+      "android.widget.HorizontalScrollView",
+      "android.widget.ProgressBar",
+      "android.widget.SeekBar",
+      "android.widget.Space",
+      "android.view.View",
+    };
+    for (int i = 0; i < widgets.length; i++) {
+      sViewCreators.put(widgets[i], new WidgetCreator(i));
+    }
+  }
 
   LayoutInflater.Factory2 mFactory2;
   LayoutInflater.Factory mFactory;
@@ -54,6 +93,15 @@ final class FolivoraViewFactory implements LayoutInflater.Factory2 {
 
   @Override
   public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+    final boolean traced = Tracing.begin("Folivora#onCreateView ", name);
+    try {
+      return createView(parent, name, context, attrs);
+    } finally {
+      Tracing.end(traced);
+    }
+  }
+
+  private View createView(View parent, String name, Context context, AttributeSet attrs) {
     View view = null;
     if (mFactory2 != null) {
       view = mFactory2.onCreateView(parent, name, context, attrs);
@@ -64,43 +112,118 @@ final class FolivoraViewFactory implements LayoutInflater.Factory2 {
     if (view == null && name.endsWith("ViewStub")) return null;//fix NPE when creating ViewStub
 
     if (view == null && name.indexOf('.') != -1) {
-      view = createView(name, context, attrs);
+      view = createView(name, context, attrs, false);
     }
 
-    if (view == null) {
-      for (String prefix : sClassPrefixList) {
-        view = createView(prefix + name, context, attrs);
-        if (view != null) break;
+    if (view == null && name.indexOf('.') == -1) {
+      final String resolvedPrefix = ViewClasses.prefixOf(name);
+      if (resolvedPrefix != null) {
+        view = createView(resolvedPrefix + name, context, attrs, false);
+      } else {
+        for (String prefix : sClassPrefixList) {
+          view = createView(prefix + name, context, attrs, true);
+          if (view != null) {
+            ViewClasses.onResolved(name, prefix);
+            break;
+          }
+        }
       }
     }
     if (view != null) {
-      Folivora.applyDrawableToView(view, attrs);
+      final long start = Metrics.start();
+      // Only views folivora created a drawable for are reported
+      if (Folivora.applyDrawableToView(view, attrs)) Metrics.viewDrawableApplied(view, start);
       Folivora.dispatchViewCreated(view, attrs);
     }
     return view;
   }
 
-  private static View createView(String name, Context ctx, AttributeSet attrs) {
+  static void registerViewCreator(String className, ViewCreator creator) {
+    if (creator == null) {
+      sViewCreators.remove(className);
+    } else {
+      sViewCreators.put(className, creator);
+    }
+  }
+
+  /**
+   * @param probing true if name is a guess of framework prefixes for an
+   *                unqualified tag, only these misses are remembered, other
+   *                classes may become loadable later, eg, by installing a
+   *                dynamic feature, or by another class loader
+   */
+  private static View createView(String name, Context ctx, AttributeSet attrs, boolean probing) {
+    final ViewCreator creator = sViewCreators.get(name);
+    if (creator != null) {
+      final boolean traced = Tracing.begin("Folivora#newView ", name);
+      try {
+        return creator.create(ctx, attrs);
+      } finally {
+        Tracing.end(traced);
+      }
+    }
     Constructor<? extends View> constructor = sConstructorMap.get(name);
+    if (constructor == null && probing && ViewClasses.isMissing(name)) return null;
     try {
       if (constructor == null) {
         // Class not found in the cache, see if it's real, and try to add it
         Class<? extends View> clazz = ctx.getClassLoader().loadClass(name).asSubclass(View.class);
 
         constructor = clazz.getConstructor(sConstructorSignature);
+        constructor.setAccessible(true);
         sConstructorMap.put(name, constructor);
       }
-      constructor.setAccessible(true);
-      sConstructorArgs[0] = ctx;
-      sConstructorArgs[1] = attrs;
-      return constructor.newInstance(sConstructorArgs);
+      final boolean traced = Tracing.begin("Folivora#newView ", name);
+      try {
+        return constructor.newInstance(ctx, attrs);
+      } finally {
+        Tracing.end(traced);
+      }
+    } catch (ClassNotFoundException e) {
+      // Remember it, so the next guess of this name fails fast
+      if (probing) ViewClasses.onMissing(name);
+      Metrics.classResolutionMiss();
+      return null;
     } catch (Exception e) {
       // We do not want to catch these, lets return null and let the actual LayoutInflater
       // try
+      Metrics.classResolutionMiss();
       return null;
-    } finally {
-      sConstructorArgs[0] = null;
-      sConstructorArgs[1] = null;
+    }
+  }
+
+  /**
+   * Creates frequently used framework widgets without reflection, one
+   * class for all of them keeps the method count low
+   */
+  private static final class WidgetCreator implements ViewCreator {
+    private final int mType;
+
+    WidgetCreator(int type) {
+      this.mType = type;
+    }
+
+    @Override
+    public View create(Context ctx, AttributeSet attrs) {
+      switch (mType) {
+        case 0: return new TextView(ctx, attrs);
+        case 1: return new ImageView(ctx, attrs);
+        case 2: return new Button(ctx, attrs);
+        case 3: return new EditText(ctx, attrs);
+        case 4: return new ImageButton(ctx, attrs);
+        case 5: return new CheckBox(ctx, attrs);
+        case 6: return new RadioButton(ctx, attrs);
+        case 7: return new LinearLayout(ctx, attrs);
+        case 8: return new FrameLayout(ctx, attrs);
+        case 9: return new RelativeLayout(ctx, attrs);
+        case 10: return new ScrollView(ctx, attrs);
+        case 11: return new HorizontalScrollView(ctx, attrs);
+        case 12: return new ProgressBar(ctx, attrs);
+        case 13: return new SeekBar(ctx, attrs);
+        case 14: return new Space(ctx, attrs);
+        case 15: return new View(ctx, attrs);
+        default: throw new IllegalStateException("Unknown widget type " + mType);
+      }
     }
   }
 
@@ -111,7 +234,7 @@ final class FolivoraViewFactory implements LayoutInflater.Factory2 {
   private static boolean sCheckedField;
   private static Field sLayoutInflaterFactory2Field;
 
-  static void forceSetFactory2(LayoutInflater inflater, LayoutInflater.Factory2 factory) {
+  static synchronized void forceSetFactory2(LayoutInflater inflater, LayoutInflater.Factory2 factory) {
     if (!sCheckedField) {
       try {
         //noinspection JavaReflectionMemberAccess
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+
+/**
+ * IdlePreparer creates drawables of {@link LazyDrawable}s when main thread
+ * is idle, in the order they are inflated. Each idle slot spends at most
+ * the budget, the rest are left to following idle slots, so drawables of
+ * views not drawn in the first frame are likely ready before scrolled or
+ * expanded into screen, without delaying any frame noticeably.
+ * <p>
+ * All methods except {@link #setBudget(long)} are called on main thread.
+ *
+ * @see Folivora#setIdlePrepareBudget(long)
+ */
+final class IdlePreparer implements MessageQueue.IdleHandler {
+  private static final IdlePreparer sInstance = new IdlePreparer();
+  private static volatile long sBudgetNanos;
+
+  // Placeholders are weakly referenced, views gone before an idle slot are not retained
+  private final ArrayDeque<WeakReference<LazyDrawable>> mQueue = new ArrayDeque<>();
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  // Posted to get another idle slot if work remains, idle handlers are
+  // only called once until a new message arrives
+  private final Runnable mWakeUp = new Runnable() {
+    @Override
+    public void run() {}
+  };
+  private boolean mAdded;
+
+  private IdlePreparer() {}
+
+  /**
+   * @param budgetMillis max milliseconds spent per idle slot, 0 to disable
+   */
+  static void setBudget(long budgetMillis) {
+    sBudgetNanos = budgetMillis * 1000000L;
+  }
+
+  /**
+   * Schedule a placeholder to be prepared when idle, it is ignored if
+   * idle preparing is disabled or current thread is not main thread
+   */
+  static void enqueue(LazyDrawable d) {
+    if (sBudgetNanos <= 0 || Looper.myLooper() != Looper.getMainLooper()) return;
+    sInstance.add(d);
+  }
+
+  private void add(LazyDrawable d) {
+    mQueue.add(new WeakReference<>(d));
+    if (!mAdded) {
+      Looper.myQueue().addIdleHandler(this);
+      mAdded = true;
+    }
+  }
+
+  @Override
+  public boolean queueIdle() {
+    final long budget = sBudgetNanos;
+    if (budget <= 0) {
+      mQueue.clear();
+    } else {
+      final boolean traced = Tracing.begin("Folivora#idlePrepare", null);
+      try {
+        // At least one drawable is prepared per slot, even over budget
+        final long deadline = System.nanoTime() + budget;
+        do {
+          final LazyDrawable d = mQueue.poll().get();
+          if (d != null) d.prepare();
+        } while (!mQueue.isEmpty() && System.nanoTime() < deadline);
+      } finally {
+        Tracing.end(traced);
+      }
+    }
+    mAdded = !mQueue.isEmpty();
+    if (mAdded) mHandler.post(mWakeUp);
+    return mAdded;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Creates drawables of layout elements without reading their attrs,
+ * implementations are generated from layout files at build time by
+ * folivora-compiler, set it via {@link Folivora#setLayoutDrawableFactory(LayoutDrawableFactory)}.
+ * Like DrawableParser, implementations must be thread safe.
+ */
+public interface LayoutDrawableFactory {
+  /**
+   * Create the drawable of a layout element
+   *
+   * @param ctx    context of the view
+   * @param layout resource id of the layout inflating
+   * @param line   line number of the element's start tag in layout file
+   * @return a new drawable, or null if the element is not generated, then
+   *         folivora parses it's attrs as usual
+   */
+  Drawable newDrawable(Context ctx, int layout, int line);
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Outline;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+
+/**
+ * A placeholder installed to views with {@code app:drawableLazy}, the real
+ * drawable is created from the spec when it is drawn for the first time,
+ * so views never shown, eg, views of collapsed sections, skip drawable
+ * parsing entirely. It may be created earlier when main thread is idle,
+ * see {@link IdlePreparer}.
+ * <p>
+ * Before the real drawable is created, the placeholder has no intrinsic
+ * size and no padding, so lazy drawables should not take part in layout.
+ * Calls made to the placeholder, eg, tint, alpha and mutate, are applied
+ * to the real drawable once created, and forwarded afterwards. The view
+ * holds the placeholder, not the real drawable.
+ */
+final class LazyDrawable extends Drawable implements Drawable.Callback {
+  private Context mContext;
+  private DrawableSpec mSpec;
+  private Drawable mDrawable;
+  private int mAlpha = 0xFF;
+  private ColorFilter mColorFilter;
+  private ColorStateList mTint;
+  private PorterDuff.Mode mTintMode;
+  private boolean mMutated;
+
+  LazyDrawable(Context ctx, DrawableSpec spec) {
+    this.mContext = ctx;
+    this.mSpec = spec;
+  }
+
+  /**
+   * Create the real drawable if not created yet, this is called on first
+   * draw, or earlier by {@link IdlePreparer}
+   *
+   * @return the real drawable, or null if the spec creates nothing
+   */
+  Drawable prepare() {
+    if (mSpec == null) return mDrawable;
+    final DrawableSpec spec = mSpec;
+    final Context ctx = mContext;
+    mSpec = null;
+    mContext = null;
+    final boolean traced = Tracing.begin("Folivora#lazyCreate", null);
+    try {
+      mDrawable = spec.newDrawable(ctx);
+    } finally {
+      Tracing.end(traced);
+    }
+    Drawable d = mDrawable;
+    if (d != null) {
+      if (mMutated) d = mDrawable = d.mutate();
+      d.setCallback(this);
+      d.setVisible(isVisible(), false);
+      d.setState(getState());
+      d.setLevel(getLevel());
+      d.setAlpha(mAlpha);
+      if (mColorFilter != null) d.setColorFilter(mColorFilter);
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        if (mTint != null) d.setTintList(mTint);
+        if (mTintMode != null) d.setTintMode(mTintMode);
+      }
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+        d.setLayoutDirection(getLayoutDirection());
+      }
+      d.setBounds(getBounds());
+      // Let the view rebuild it's outline from the real drawable
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) invalidateSelf();
+    }
+    return d;
+  }
+
+  @Override
+  public void draw(Canvas canvas) {
+    final Drawable d = prepare();
+    if (d != null) d.draw(canvas);
+  }
+
+  @Override
+  protected void onBoundsChange(Rect bounds) {
+    if (mDrawable != null) mDrawable.setBounds(bounds);
+  }
+
+  @Override
+  protected boolean onStateChange(int[] state) {
+    return mDrawable != null && mDrawable.setState(state);
+  }
+
+  @Override
+  protected boolean onLevelChange(int level) {
+    return mDrawable != null && mDrawable.setLevel(level);
+  }
+
+  @Override
+  public boolean isStateful() {
+    // Keep receiving states until the real drawable tells
+    return mDrawable == null ? mSpec != null : mDrawable.isStateful();
+  }
+
+  @Override
+  public boolean setVisible(boolean visible, boolean restart) {
+    final boolean changed = super.setVisible(visible, restart);
+    if (mDrawable != null) mDrawable.setVisible(visible, restart);
+    return changed;
+  }
+
+  @Override
+  public void jumpToCurrentState() {
+    if (mDrawable != null) mDrawable.jumpToCurrentState();
+  }
+
+  @Override
+  public void setHotspot(float x, float y) {
+    if (mDrawable != null) mDrawable.setHotspot(x, y);
+  }
+
+  @Override
+  public void setHotspotBounds(int left, int top, int right, int bottom) {
+    if (mDrawable != null) mDrawable.setHotspotBounds(left, top, right, bottom);
+  }
+
+  @Override
+  public void setAlpha(int alpha) {
+    mAlpha = alpha;
+    if (mDrawable != null) mDrawable.setAlpha(alpha);
+  }
+
+  @Override
+  public void setTintList(ColorStateList tint) {
+    mTint = tint;
+    if (mDrawable != null) mDrawable.setTintList(tint);
+  }
+
+  @Override
+  public void setTintMode(PorterDuff.Mode tintMode) {
+    mTintMode = tintMode;
+    if (mDrawable != null) mDrawable.setTintMode(tintMode);
+  }
+
+  @Override
+  public boolean onLayoutDirectionChanged(int layoutDirection) {
+    return mDrawable != null && mDrawable.setLayoutDirection(layoutDirection);
+  }
+
+  @Override
+  public Drawable mutate() {
+    // The real drawable is mutated once created, the view keeps this
+    if (!mMutated) {
+      mMutated = true;
+      if (mDrawable != null) mDrawable = mDrawable.mutate();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean getPadding(Rect padding) {
+    return mDrawable != null ? mDrawable.getPadding(padding) : super.getPadding(padding);
+  }
+
+  @Override
+  public void getOutline(Outline outline) {
+    if (mDrawable != null) {
+      mDrawable.getOutline(outline);
+    } else {
+      super.getOutline(outline);
+    }
+  }
+
+  @Override
+  public int getAlpha() {
+    return mAlpha;
+  }
+
+  @Override
+  public void setColorFilter(ColorFilter colorFilter) {
+    mColorFilter = colorFilter;
+    if (mDrawable != null) mDrawable.setColorFilter(colorFilter);
+  }
+
+  @Override
+  public int getOpacity() {
+    return mDrawable != null ? mDrawable.getOpacity() : PixelFormat.TRANSLUCENT;
+  }
+
+  @Override
+  public int getIntrinsicWidth() {
+    return mDrawable != null ? mDrawable.getIntrinsicWidth() : -1;
+  }
+
+  @Override
+  public int getIntrinsicHeight() {
+    return mDrawable != null ? mDrawable.getIntrinsicHeight() : -1;
+  }
+
+  @Override
+  public Drawable getCurrent() {
+    return mDrawable != null ? mDrawable.getCurrent() : this;
+  }
+
+  @Override
+  public void invalidateDrawable(Drawable who) {
+    invalidateSelf();
+  }
+
+  @Override
+  public void scheduleDrawable(Drawable who, Runnable what, long when) {
+    scheduleSelf(what, when);
+  }
+
+  @Override
+  public void unscheduleDrawable(Drawable who, Runnable what) {
+    unscheduleSelf(what);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.view.View;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free counters and timing dispatcher of folivora, all operations
+ * are no-op unless a {@link MetricsListener} is set. Cache hits and misses
+ * are counted by {@link DrawableCache} regardless of this, they are only
+ * merged into snapshots here.
+ */
+final class Metrics {
+  private static volatile MetricsListener sListener;
+
+  private static final AtomicLong sStyledAttributesCount = new AtomicLong();
+  private static final AtomicLong sCacheEvictionCount = new AtomicLong();
+  private static final AtomicLong sReflectiveParseCount = new AtomicLong();
+  private static final AtomicLong sClassResolutionMissCount = new AtomicLong();
+
+  static void setListener(MetricsListener listener) {
+    sListener = listener;
+  }
+
+  /**
+   * @return a timestamp to measure from, or 0 if metrics is disabled
+   */
+  static long start() {
+    return sListener != null ? System.nanoTime() : 0L;
+  }
+
+  static void viewDrawableApplied(View view, long start) {
+    final MetricsListener l = sListener;
+    if (l != null && start != 0L) {
+      l.onViewDrawableApplied(view, System.nanoTime() - start);
+    }
+  }
+
+  static void drawableParsed(String drawableClassName, long start) {
+    final MetricsListener l = sListener;
+    if (l != null && start != 0L) {
+      l.onDrawableParsed(drawableClassName, System.nanoTime() - start);
+    }
+  }
+
+  static void styledAttributesObtained() {
+    if (sListener != null) sStyledAttributesCount.incrementAndGet();
+  }
+
+  static void cacheEvicted() {
+    if (sListener != null) sCacheEvictionCount.incrementAndGet();
+  }
+
+  static void reflectiveParse() {
+    if (sListener != null) sReflectiveParseCount.incrementAndGet();
+  }
+
+  static void classResolutionMiss() {
+    if (sListener != null) sClassResolutionMissCount.incrementAndGet();
+  }
+
+  static FolivoraMetrics snapshot(long cacheHitCount, long cacheMissCount) {
+    return new FolivoraMetrics(
+      sStyledAttributesCount.get(),
+      cacheHitCount,
+      cacheMissCount,
+      sCacheEvictionCount.get(),
+      sReflectiveParseCount.get(),
+      sClassResolutionMissCount.get()
+    );
+  }
+
+  private Metrics() {}
+}
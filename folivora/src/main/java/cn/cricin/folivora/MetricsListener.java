@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.view.View;
+
+/**
+ * A listener receives timings of folivora works, all timings are wall
+ * time in nanoseconds, measured on the inflating thread. Callbacks are
+ * invoked on the inflating thread as well, implementations should be
+ * cheap and thread safe.
+ *
+ * @see Folivora#setMetricsListener(MetricsListener)
+ */
+public interface MetricsListener {
+
+  /**
+   * Called when folivora finished creating and setting drawable for a view,
+   * views without folivora drawable attrs are not reported
+   *
+   * @param view          the view just created
+   * @param durationNanos time spent on drawable of this view, including
+   *                      cache lookups and drawable parsing
+   */
+  void onViewDrawableApplied(View view, long durationNanos);
+
+  /**
+   * Called when a drawable parser finished parsing, this is called for
+   * nested drawables as well, timings of outer drawables include it's
+   * children
+   *
+   * @param drawableClassName full qualified class name of drawable
+   * @param durationNanos     time spent on parsing
+   */
+  void onDrawableParsed(String drawableClassName, long durationNanos);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * The chain passed to {@link ParseInterceptor}s, the parser is called
+ * once all interceptors have proceeded.
+ */
+final class ParseChain implements ParseInterceptor.Chain {
+  private final ParseInterceptor[] mInterceptors;
+  private final int mIndex;
+  private final DrawableParser mParser;
+  private final ParseRequest mRequest;
+  private final int mDepth;
+
+  ParseChain(ParseInterceptor[] interceptors, int index, DrawableParser parser,
+             ParseRequest request, int depth) {
+    this.mInterceptors = interceptors;
+    this.mIndex = index;
+    this.mParser = parser;
+    this.mRequest = request;
+    this.mDepth = depth;
+  }
+
+  @Override
+  public ParseRequest request() {
+    return mRequest;
+  }
+
+  @Override
+  public int depth() {
+    return mDepth;
+  }
+
+  @Override
+  public Drawable proceed() {
+    if (mIndex >= mInterceptors.length) {
+      return mParser.parse(mRequest);
+    }
+    final ParseChain next = new ParseChain(mInterceptors, mIndex + 1, mParser, mRequest, mDepth);
+    return mInterceptors[mIndex].intercept(next);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * A ParseInterceptor observes, short-circuits or rewrites drawable
+ * parsing, interceptors are called in the order added, around every
+ * {@link DrawableParser#parse(ParseRequest)} call, including parses of
+ * nested drawables, eg, shapes inside a selector. Interceptors may be
+ * called from any inflating thread, and on main thread when drawables of
+ * {@code app:drawableLazy} views are created, the request carries no
+ * {@link ParseRequest#attrs()} then.
+ *
+ * @see Folivora#addParseInterceptor(ParseInterceptor)
+ */
+public interface ParseInterceptor {
+  /**
+   * Intercept a parse, call {@link Chain#proceed()} to go on with the
+   * next interceptor and finally the parser, or return a drawable
+   * directly to skip them.
+   *
+   * @param chain the chain of current parse
+   * @return the parsed drawable, or null if unable to parse
+   */
+  Drawable intercept(Chain chain);
+
+  interface Chain {
+    /**
+     * @return request of current parse
+     */
+    ParseRequest request();
+
+    /**
+     * @return nesting depth of current parse, 0 for drawables of views,
+     * 1 for their children, and so on
+     */
+    int depth();
+
+    /**
+     * Proceed to the next interceptor, or the parser if this is the last
+     *
+     * @return the parsed drawable, or null if unable to parse
+     */
+    Drawable proceed();
+  }
+}
@@ -22,24 +22,81 @@ import android.util.AttributeSet;
 /**
  * A ParseRequest holding all information of drawable parsing task
  * each field may be used by different DrawableParsers.
+ * <p>
+ * Requests are pooled and recycled once {@link DrawableParser#parse(ParseRequest)}
+ * returns, so parsers should not keep a request after parsing.
  */
 public final class ParseRequest {
-  private final Context mContext;
-  private final AttributeSet mAttrs;
-  private final RippleFallback mRippleFallback;
-  private final ShapeAttrs mShapeAttrs;
-  private final String mDrawableClassName;
+  private static final int MAX_POOL_SIZE = 8;
+  private static final Object sPoolSync = new Object();
+  private static ParseRequest sPool;
+  private static int sPoolSize;
 
-  /*package*/ParseRequest(Context context,
-               AttributeSet attrs,
-               RippleFallback fallback,
-               ShapeAttrs shapeAttrs,
-               String drawableClassName) {
-    this.mContext = context;
-    this.mAttrs = attrs;
-    this.mRippleFallback = fallback;
-    this.mShapeAttrs = shapeAttrs;
-    this.mDrawableClassName = drawableClassName;
+  private Context mContext;
+  private AttributeSet mAttrs;
+  private RippleFallback mRippleFallback;
+  private ShapeAttrs mShapeAttrs;
+  private String mDrawableClassName;
+  private AttrStore mStore;
+  private boolean mOwnsStore;
+  private ParseRequest mNext;
+
+  private ParseRequest() {}
+
+  /*package*/static ParseRequest obtain(Context context,
+                                      AttributeSet attrs,
+                                      RippleFallback fallback,
+                                      ShapeAttrs shapeAttrs,
+                                      String drawableClassName,
+                                      AttrStore store) {
+    ParseRequest request = null;
+    synchronized (sPoolSync) {
+      if (sPool != null) {
+        request = sPool;
+        sPool = request.mNext;
+        request.mNext = null;
+        sPoolSize--;
+      }
+    }
+    if (request == null) request = new ParseRequest();
+    request.mContext = context;
+    request.mAttrs = attrs;
+    request.mRippleFallback = fallback;
+    request.mShapeAttrs = shapeAttrs;
+    request.mDrawableClassName = drawableClassName;
+    request.mStore = store;
+    return request;
+  }
+
+  /*package*/void recycle() {
+    if (mOwnsStore) mStore.recycle();
+    mStore = null;
+    mOwnsStore = false;
+    mContext = null;
+    mAttrs = null;
+    mRippleFallback = null;
+    mShapeAttrs = null;
+    mDrawableClassName = null;
+    synchronized (sPoolSync) {
+      if (sPoolSize < MAX_POOL_SIZE) {
+        mNext = sPool;
+        sPool = this;
+        sPoolSize++;
+      }
+    }
+  }
+
+  /**
+   * Attrs of a built-in styleable, resolved along with all folivora attrs
+   * of the view tag, the store is obtained here if the request is not
+   * issued from a view inflation, eg, nested shapes of custom drawables
+   */
+  /*package*/StyledAttrs styledAttrs(int[] styleable) {
+    if (mStore == null) {
+      mStore = AttrStore.obtain(mContext, mAttrs);
+      mOwnsStore = true;
+    }
+    return mStore.get(styleable);
   }
 
   /**
@@ -50,7 +107,10 @@ public final class ParseRequest {
   }
 
   /**
-   * @return attribute retrieved from view tag
+   * @return attribute retrieved from view tag, or null if the drawable is
+   * created after inflation of the view, eg, with {@code app:drawableLazy},
+   * which is honored only while the built-in parsers are not replaced,
+   * interceptors may still see requests without attrs
    */
   public AttributeSet attrs() {
     return mAttrs;
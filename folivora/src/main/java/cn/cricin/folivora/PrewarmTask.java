@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static cn.cricin.folivora.Folivora.TAG;
+
+/**
+ * A PrewarmTask walks compiled layout files on a background thread, and
+ * resolves drawables of view tags into folivora's drawable cache, so the
+ * later inflation of these layouts just hits the cache. Only drawables
+ * can be cached are resolved, that is, drawables with a drawableId, or
+ * any drawable if automatic drawable id is enabled. Included layouts
+ * are walked as well.
+ *
+ * @see Folivora#prewarm(Context, int...)
+ * @see Folivora#prewarm(Context, Callback, int...)
+ */
+public final class PrewarmTask implements Runnable {
+  private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+  private final Context mContext;
+  private final Callback mCallback;
+  private final List<Integer> mLayouts = new ArrayList<>();
+  // Layouts given by caller, the others are discovered by include tags
+  private final int mInflatedCount;
+  private volatile boolean mCancelled;
+
+  /**
+   * A callback notified on main thread about prewarming progress
+   */
+  public interface Callback {
+    /**
+     * Called when a layout is prewarmed
+     *
+     * @param completed count of prewarmed layouts
+     * @param total     count of layouts known so far, including the
+     *                  included layouts discovered
+     */
+    void onProgress(int completed, int total);
+
+    /**
+     * Called when the task is done, or stopped due to cancellation
+     *
+     * @param cancelled true if the task is cancelled
+     */
+    void onFinished(boolean cancelled);
+  }
+
+  PrewarmTask(Context ctx, Callback callback, int[] layoutResIds) {
+    this.mContext = ctx;
+    this.mCallback = callback;
+    for (int id : layoutResIds) {
+      if (!mLayouts.contains(id)) mLayouts.add(id);
+    }
+    this.mInflatedCount = mLayouts.size();
+  }
+
+  /**
+   * Cancel this task, layouts not prewarmed yet are skipped
+   */
+  public void cancel() {
+    mCancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return mCancelled;
+  }
+
+  @Override
+  public void run() {
+    final Set<Integer> visited = new HashSet<>(mLayouts);
+    for (int i = 0; i < mLayouts.size() && !mCancelled; i++) {
+      try {
+        prewarmLayout(mLayouts.get(i), i < mInflatedCount, visited);
+      } catch (Exception e) {
+        Log.w(TAG, "exception occurred prewarming layout [" + mLayouts.get(i) + "]", e);
+      }
+      dispatchProgress(i + 1, mLayouts.size());
+    }
+    dispatchFinished(mCancelled);
+  }
+
+  private void prewarmLayout(int layoutResId, boolean inflated, Set<Integer> visited) throws Exception {
+    XmlResourceParser parser = mContext.getResources().getLayout(layoutResId);
+    // Elements of layouts inflated by id are keyed by location, track the
+    // parser like inflation does, so both sides produce the same keys.
+    // Included layouts are parsed by other parsers, they are keyed by content
+    final boolean tracked = inflated && Folivora.isLocationKeyEnabled();
+    if (tracked) FolivoraInflater.beginLayout(mContext.getResources(), layoutResId, parser);
+    try {
+      final AttributeSet attrs = Xml.asAttributeSet(parser);
+      int type;
+      while ((type = parser.next()) != XmlPullParser.END_DOCUMENT && !mCancelled) {
+        if (type != XmlPullParser.START_TAG) continue;
+        if ("include".equals(parser.getName())) {
+          final int layout = attrs.getAttributeResourceValue(null, "layout", 0);
+          if (layout != 0 && visited.add(layout)) {
+            mLayouts.add(layout);
+          }
+        } else {
+          Folivora.prepareDrawable(mContext, attrs);
+        }
+      }
+    } finally {
+      if (tracked) FolivoraInflater.endLayout();
+      parser.close();
+    }
+  }
+
+  private void dispatchProgress(final int completed, final int total) {
+    if (mCallback == null) return;
+    sMainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mCallback.onProgress(completed, total);
+      }
+    });
+  }
+
+  private void dispatchFinished(final boolean cancelled) {
+    if (mCallback == null) return;
+    sMainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mCallback.onFinished(cancelled);
+      }
+    });
+  }
+}
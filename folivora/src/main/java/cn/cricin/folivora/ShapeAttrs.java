@@ -44,6 +44,8 @@ final class ShapeAttrs {
   int mShapeCornerRadiusTopRight;
   int mShapeCornerRadiusBottomLeft;
   int mShapeCornerRadiusBottomRight;
+  // All attribute indexes above except styleable, in declaration order
+  final int[] mIndices;
 
   private ShapeAttrs(
     int[] attrStyleable,
@@ -93,6 +95,14 @@ final class ShapeAttrs {
     this.mShapeCornerRadiusTopRight = shapeCornerRadiusTopRight;
     this.mShapeCornerRadiusBottomLeft = shapeCornerRadiusBottomLeft;
     this.mShapeCornerRadiusBottomRight = shapeCornerRadiusBottomRight;
+    this.mIndices = new int[]{
+      shapeType, shapeSolidSize, shapeSolidWidth, shapeSolidHeight,
+      shapeGradientType, shapeGradientRadius, shapeGradientCenterX, shapeGradientCenterY,
+      shapeGradientStartColor, shapeGradientCenterColor, shapeGradientEndColor, shapeGradientAngle,
+      shapeSolidColor, shapeStrokeWidth, shapeStrokeColor, shapeStrokeDashGap, shapeStrokeDashWidth,
+      shapeCornerRadius, shapeCornerRadiusTopLeft, shapeCornerRadiusTopRight,
+      shapeCornerRadiusBottomLeft, shapeCornerRadiusBottomRight
+    };
   }
 
   private static final ShapeAttrs[] SHAPE_ATTRS_ARRAY = {
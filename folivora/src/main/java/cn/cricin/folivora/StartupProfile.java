@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static cn.cricin.folivora.Folivora.TAG;
+
+/**
+ * StartupProfile records layouts which folivora created drawables for
+ * during a short window after launch, and persists them to a file, the
+ * next launch replays the profile by prewarming these layouts. Layouts
+ * are stored by resource names, so a profile survives resource id
+ * changes between releases, stale entries are just ignored.
+ */
+final class StartupProfile {
+  private static final String FILE_NAME = "folivora_startup_profile";
+
+  private static StartupProfile sInstance;
+
+  private final Context mAppContext;
+  private final Set<Integer> mLayouts = new LinkedHashSet<>();
+  private final long mDeadline;
+  private volatile boolean mRecording = true;
+
+  private StartupProfile(Context appContext, long windowMillis) {
+    this.mAppContext = appContext;
+    this.mDeadline = SystemClock.uptimeMillis() + windowMillis;
+  }
+
+  /**
+   * Start recording and replay the profile of last launch, this takes
+   * effect only once per process
+   *
+   * @param ctx          context which the recorded layouts will be inflated with
+   * @param windowMillis length of recording window
+   */
+  static synchronized void start(final Context ctx, long windowMillis) {
+    if (sInstance != null) return;
+    final Context appContext = ctx.getApplicationContext() != null ? ctx.getApplicationContext() : ctx;
+    final StartupProfile profile = new StartupProfile(appContext, windowMillis);
+    sInstance = profile;
+    Folivora.backgroundExecutor().execute(new Runnable() {
+      @Override
+      public void run() {
+        int[] layouts = profile.read();
+        if (layouts.length > 0) {
+          new PrewarmTask(ctx, null, layouts).run();
+        }
+      }
+    });
+    new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
+      @Override
+      public void run() {
+        profile.stop();
+      }
+    }, windowMillis);
+  }
+
+  /**
+   * Called when folivora created a drawable for a view
+   */
+  static void record() {
+    final StartupProfile profile = sInstance;
+    if (profile == null || !profile.mRecording) return;
+    final int layout = FolivoraInflater.currentLayout();
+    if (layout == 0) return;
+    if (SystemClock.uptimeMillis() > profile.mDeadline) {
+      profile.stop();
+      return;
+    }
+    synchronized (profile.mLayouts) {
+      profile.mLayouts.add(layout);
+    }
+  }
+
+  private void stop() {
+    if (!mRecording) return;
+    mRecording = false;
+    Folivora.backgroundExecutor().execute(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    });
+  }
+
+  private File file() {
+    return new File(mAppContext.getFilesDir(), FILE_NAME);
+  }
+
+  private int[] read() {
+    final File file = file();
+    if (!file.exists()) return new int[0];
+    final Resources res = mAppContext.getResources();
+    final List<Integer> layouts = new ArrayList<>();
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new FileReader(file));
+      String name;
+      while ((name = reader.readLine()) != null) {
+        if (name.length() == 0) continue;
+        final int id = res.getIdentifier(name, null, null);
+        if (id != 0) layouts.add(id);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "failed to read startup profile", e);
+    } finally {
+      closeQuietly(reader);
+    }
+    int[] result = new int[layouts.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = layouts.get(i);
+    }
+    return result;
+  }
+
+  private void write() {
+    final Resources res = mAppContext.getResources();
+    final List<Integer> layouts;
+    synchronized (mLayouts) {
+      layouts = new ArrayList<>(mLayouts);
+    }
+    Writer writer = null;
+    try {
+      writer = new FileWriter(file());
+      for (int layout : layouts) {
+        try {
+          writer.write(res.getResourceName(layout));
+          writer.write('\n');
+        } catch (Resources.NotFoundException ignored) {
+        }
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "failed to write startup profile", e);
+    } finally {
+      closeQuietly(writer);
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) return;
+    try {
+      closeable.close();
+    } catch (IOException ignored) {
+    }
+  }
+}
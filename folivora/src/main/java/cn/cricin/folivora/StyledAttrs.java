@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.cricin.folivora;
+
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+
+/**
+ * Attributes of a single styleable inside an {@link AttrStore}, accessors
+ * mirror {@link TypedArray}, and take indices of the styleable.
+ */
+final class StyledAttrs {
+  private final AttrStore mStore;
+  private TypedArray mArray;
+  private final int[] mToMerged;
+  private final int[] mFromMerged;
+
+  StyledAttrs(AttrStore store, TypedArray array, int[] toMerged, int[] fromMerged) {
+    this.mStore = store;
+    this.mArray = array;
+    this.mToMerged = toMerged;
+    this.mFromMerged = fromMerged;
+  }
+
+  /**
+   * Bind to arrays of a store obtained again from pool
+   */
+  void bind(TypedArray array) {
+    this.mArray = array;
+  }
+
+  AttrStore store() {
+    return mStore;
+  }
+
+  /**
+   * @return count of attributes which have values in the array backing
+   * this styleable, which may be shared by other styleables
+   */
+  int getIndexCount() {
+    return mArray.getIndexCount();
+  }
+
+  /**
+   * @return index in this styleable, or -1 if the attribute at position
+   * belongs to other styleables
+   */
+  int getIndex(int at) {
+    return mFromMerged[mArray.getIndex(at)];
+  }
+
+  boolean hasValue(int index) {
+    return mArray.hasValue(mToMerged[index]);
+  }
+
+  boolean getBoolean(int index, boolean defValue) {
+    return mArray.getBoolean(mToMerged[index], defValue);
+  }
+
+  int getInt(int index, int defValue) {
+    return mArray.getInt(mToMerged[index], defValue);
+  }
+
+  float getFloat(int index, float defValue) {
+    return mArray.getFloat(mToMerged[index], defValue);
+  }
+
+  int getColor(int index, int defValue) {
+    return mArray.getColor(mToMerged[index], defValue);
+  }
+
+  ColorStateList getColorStateList(int index) {
+    return mArray.getColorStateList(mToMerged[index]);
+  }
+
+  float getDimension(int index, float defValue) {
+    return mArray.getDimension(mToMerged[index], defValue);
+  }
+
+  int getDimensionPixelSize(int index, int defValue) {
+    return mArray.getDimensionPixelSize(mToMerged[index], defValue);
+  }
+
+  boolean getValue(int index, TypedValue outValue) {
+    return mArray.getValue(mToMerged[index], outValue);
+  }
+
+  String getString(int index) {
+    return mArray.getString(mToMerged[index]);
+  }
+
+  Drawable getDrawable(int index) {
+    return mArray.getDrawable(mToMerged[index]);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Emits {@link Trace} sections around folivora works, so they show up
+ * in systrace and perfetto, instead of anonymous time inside inflation.
+ * Sections are emitted only when enabled, and section names are built
+ * only then. A begin call returns whether a section is began, pass it
+ * to the paired end call, so toggling tracing in the middle of a section
+ * never unbalances the trace.
+ */
+final class Tracing {
+  // Max length of section name accepted by Trace
+  private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+  private static volatile boolean sEnabled;
+
+  static void setEnabled(boolean enabled) {
+    sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+  }
+
+  /**
+   * Begin a trace section named section + name
+   *
+   * @return true if the section is began
+   */
+  static boolean begin(String section, String name) {
+    if (!sEnabled) return false;
+    String sectionName = name == null ? section : section + name;
+    if (sectionName.length() > MAX_SECTION_NAME_LENGTH) {
+      sectionName = sectionName.substring(0, MAX_SECTION_NAME_LENGTH);
+    }
+    Trace.beginSection(sectionName);
+    return true;
+  }
+
+  static void end(boolean began) {
+    if (began) Trace.endSection();
+  }
+
+  private Tracing() {}
+}
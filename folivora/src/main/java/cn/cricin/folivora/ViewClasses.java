@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ViewClasses remembers how unqualified view tags are resolved, so the
+ * package prefixes are not probed again by loading classes and catching
+ * {@link ClassNotFoundException}s. A tag is mapped to the prefix which
+ * resolved it, and prefixed names known to be missing are remembered as
+ * well. Common framework widgets are known in advance. Only guesses of
+ * unqualified tags are remembered as missing, full qualified classes may
+ * become loadable later.
+ */
+final class ViewClasses {
+  private static final Map<String, String> sPrefixMap = new ConcurrentHashMap<>();
+  private static final Set<String> sMissingClasses =
+    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  static {
+    final String[] widgets = {
+      "AbsoluteLayout", "AutoCompleteTextView", "Button", "CheckBox",
+      "CheckedTextView", "Chronometer", "EditText", "FrameLayout",
+      "GridLayout", "GridView", "HorizontalScrollView", "ImageButton",
+      "ImageSwitcher", "ImageView", "LinearLayout", "ListView",
+      "MultiAutoCompleteTextView", "NumberPicker", "ProgressBar",
+      "RadioButton", "RadioGroup", "RatingBar", "RelativeLayout",
+      "ScrollView", "SearchView", "SeekBar", "Space", "Spinner", "Switch",
+      "TableLayout", "TableRow", "TextSwitcher", "TextView", "ToggleButton",
+      "VideoView", "ViewAnimator", "ViewFlipper", "ViewSwitcher",
+    };
+    for (String widget : widgets) sPrefixMap.put(widget, "android.widget.");
+    final String[] views = {"SurfaceView", "TextureView", "View", "ViewStub"};
+    for (String view : views) sPrefixMap.put(view, "android.view.");
+    sPrefixMap.put("WebView", "android.webkit.");
+  }
+
+  /**
+   * @param name unqualified tag name
+   * @return the prefix which resolved the tag before, or null if unknown
+   */
+  static String prefixOf(String name) {
+    return sPrefixMap.get(name);
+  }
+
+  static void onResolved(String name, String prefix) {
+    sPrefixMap.put(name, prefix);
+  }
+
+  /**
+   * @param className full qualified class name
+   * @return true if the class is known to be missing
+   */
+  static boolean isMissing(String className) {
+    return sMissingClasses.contains(className);
+  }
+
+  static void onMissing(String className) {
+    sMissingClasses.add(className);
+  }
+
+  private ViewClasses() {}
+}
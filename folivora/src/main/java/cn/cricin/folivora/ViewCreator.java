@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * A ViewCreator creates a specific view directly, instead of reflection,
+ * register it via {@link Folivora#registerViewCreator(Class, ViewCreator)}
+ * for custom views inflated frequently, eg, items of RecyclerView.
+ * Creators may be called from any inflating thread.
+ */
+public interface ViewCreator {
+  /**
+   * Create a view, same as calling the (Context, AttributeSet) constructor
+   *
+   * @param ctx   inflation context
+   * @param attrs attributes from view tag
+   * @return the created view
+   */
+  View create(Context ctx, AttributeSet attrs);
+}
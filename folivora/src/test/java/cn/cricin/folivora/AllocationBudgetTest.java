@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts bytes allocated per view for applying each built-in drawable
+ * type, and fails if any exceeds the budget checked in at
+ * allocation-budgets.properties. Drawables are not cached here, so
+ * every view parses it's drawable, except the cached case, where every
+ * view hits drawable cache.
+ * <p>
+ * Run with -Pfolivora.printAllocations=true to print the measured
+ * numbers, when updating the budgets.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AllocationBudgetTest {
+  private static final int WARM_UP = 200;
+  private static final int ROUNDS = 500;
+  private static final Properties sBudgets = new Properties();
+
+  @BeforeClass
+  public static void loadBudgets() throws Exception {
+    InputStream in = AllocationBudgetTest.class.getResourceAsStream("allocation-budgets.properties");
+    assertNotNull("allocation-budgets.properties is missing", in);
+    try {
+      sBudgets.load(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void shape() {
+    assertWithinBudget("shape");
+  }
+
+  @Test
+  public void selector() {
+    assertWithinBudget("selector");
+  }
+
+  @Test
+  public void layerList() {
+    assertWithinBudget("layer_list");
+  }
+
+  @Test
+  public void ripple() {
+    assertWithinBudget("ripple");
+  }
+
+  @Test
+  public void levelList() {
+    assertWithinBudget("level_list");
+  }
+
+  @Test
+  public void clip() {
+    assertWithinBudget("clip");
+  }
+
+  @Test
+  public void inset() {
+    assertWithinBudget("inset");
+  }
+
+  @Test
+  public void scale() {
+    assertWithinBudget("scale");
+  }
+
+  @Test
+  public void animation() {
+    assertWithinBudget("animation");
+  }
+
+  @Test
+  public void cached() {
+    assertWithinBudget("cached", Fixtures.attrsOf("selector", "budget_cached"));
+  }
+
+  private static void assertWithinBudget(String type) {
+    assertWithinBudget(type, Fixtures.attrsOf(type));
+  }
+
+  private static void assertWithinBudget(String name, AttributeSet attrs) {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue("Allocation counting is not supported by this JVM",
+      bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+    final Context ctx = RuntimeEnvironment.application;
+    for (int i = 0; i < WARM_UP; i++) {
+      Folivora.applyDrawableToView(new View(ctx), attrs);
+    }
+    // Views are created up front, only drawable work is counted
+    final View[] views = new View[ROUNDS];
+    for (int i = 0; i < ROUNDS; i++) {
+      views[i] = new View(ctx);
+    }
+    final long start = allocatedBytes(bean);
+    for (View view : views) {
+      Folivora.applyDrawableToView(view, attrs);
+    }
+    final long perView = (allocatedBytes(bean) - start) / ROUNDS;
+
+    if (Boolean.getBoolean("folivora.printAllocations")) {
+      System.out.println(name + "=" + perView);
+    }
+    final String budget = sBudgets.getProperty(name);
+    assertNotNull("No allocation budget for " + name, budget);
+    assertTrue(name + " allocates " + perView + " bytes per view, budget is " + budget,
+      perView <= Long.parseLong(budget.trim()));
+  }
+
+  private static long allocatedBytes(ThreadMXBean bean) {
+    return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
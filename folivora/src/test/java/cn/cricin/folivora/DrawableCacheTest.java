@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.app.Activity;
+import android.graphics.drawable.AnimationDrawable;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Cached drawables are kept as constant states, which must not keep the
+ * views and activities they were first created for reachable
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DrawableCacheTest {
+
+  @Test
+  public void cachedEntryDoesNotRetainViewOrActivity() throws Exception {
+    // Not made visible, Robolectric 4.3 never removes windows of destroyed activities
+    ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create().start().resume();
+    final WeakReference<Activity> activity = new WeakReference<>(controller.get());
+    final WeakReference<View> view = new WeakReference<>(applyTo(controller.get(), "retention_shape"));
+    controller.pause().stop().destroy();
+    controller = null;
+    // Robolectric 4.3 attaches activities to the application's base context,
+    // which keeps the last one attached as it's autofill client
+    ReflectionHelpers.setField(RuntimeEnvironment.application.getBaseContext(), "mAutofillClient", null);
+
+    awaitCollected("View", view);
+    awaitCollected("Activity", activity);
+
+    // The entry itself survives, a new activity hits it
+    final ActivityController<Activity> next = Robolectric.buildActivity(Activity.class).setup();
+    final int hits = Folivora.getDrawableCacheHitCount();
+    assertNotNull(applyTo(next.get(), "retention_shape").getBackground());
+    assertEquals(hits + 1, Folivora.getDrawableCacheHitCount());
+  }
+
+  @Test
+  public void entriesAreNotHitUnderAnotherLocale() {
+    applyTo(Robolectric.buildActivity(Activity.class).setup().get(), "locale_shape");
+    RuntimeEnvironment.setQualifiers("+fr");
+    final int hits = Folivora.getDrawableCacheHitCount();
+    applyTo(Robolectric.buildActivity(Activity.class).setup().get(), "locale_shape");
+    assertEquals(hits, Folivora.getDrawableCacheHitCount());
+  }
+
+  @Test
+  public void viewsOwnTheirInstances() {
+    final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+    final View first = applyTo(activity, "own_instances_shape");
+    final View second = applyTo(activity, "own_instances_shape");
+    assertNotSame(first.getBackground(), second.getBackground());
+  }
+
+  @Test
+  public void autoPlayingAnimationIsNotCopiedByState() {
+    final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+    final AttributeSet attrs = Robolectric.buildAttributeSet()
+      .addAttribute(R.attr.drawableType, "animation")
+      .addAttribute(R.attr.drawableId, "auto_play_animation")
+      .addAttribute(R.attr.animAutoPlay, "true")
+      .addAttribute(R.attr.animFrame0, "#FF4081")
+      .addAttribute(R.attr.animFrame1, "#3F51B5")
+      .build();
+    for (int i = 0; i < 2; i++) {
+      final View view = new View(activity);
+      Folivora.applyDrawableToView(view, attrs);
+      // The auto playing subclass, not a plain copy made from it's state
+      assertNotSame(AnimationDrawable.class, view.getBackground().getClass());
+    }
+  }
+
+  private static View applyTo(Activity activity, String drawableId) {
+    final AttributeSet attrs = Robolectric.buildAttributeSet()
+      .addAttribute(R.attr.drawableType, "shape")
+      .addAttribute(R.attr.drawableId, drawableId)
+      .addAttribute(R.attr.shapeSolidColor, "#FF4081")
+      .addAttribute(R.attr.shapeCornerRadius, "4dp")
+      .build();
+    final View view = new View(activity);
+    Folivora.applyDrawableToView(view, attrs);
+    return view;
+  }
+
+  private static void awaitCollected(String what, WeakReference<?> ref) throws InterruptedException {
+    for (int i = 0; i < 20 && ref.get() != null; i++) {
+      System.gc();
+      System.runFinalization();
+      Thread.sleep(10);
+    }
+    assertNull(what + " is still reachable", ref.get());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2019 Cricin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.cricin.folivora;
+
+import android.util.AttributeSet;
+
+import org.robolectric.Robolectric;
+import org.robolectric.android.AttributeSetBuilder;
+
+/**
+ * View tag attributes describing one drawable of each built-in type,
+ * containers use nested shapes, as most layouts do
+ */
+final class Fixtures {
+  /**
+   * @param type drawableType enum name, eg, shape, layer_list
+   * @return attributes of a view tag with a drawable of that type
+   */
+  static AttributeSet attrsOf(String type) {
+    return attrsOf(type, null);
+  }
+
+  /**
+   * @param type       drawableType enum name, eg, shape, layer_list
+   * @param drawableId id of the drawable in cache, or null if not cached
+   * @return attributes of a view tag with a drawable of that type
+   */
+  static AttributeSet attrsOf(String type, String drawableId) {
+    AttributeSetBuilder builder = Robolectric.buildAttributeSet()
+      .addAttribute(R.attr.drawableType, type);
+    if (drawableId != null) builder.addAttribute(R.attr.drawableId, drawableId);
+    switch (type) {
+      case "shape":
+        builder.addAttribute(R.attr.shapeSolidColor, "#FF4081")
+          .addAttribute(R.attr.shapeCornerRadius, "4dp")
+          .addAttribute(R.attr.shapeStrokeWidth, "1dp")
+          .addAttribute(R.attr.shapeStrokeColor, "#3F51B5");
+        break;
+      case "selector":
+        addShapes(builder)
+          .addAttribute(R.attr.selectorStatePressed, "shape1")
+          .addAttribute(R.attr.selectorStateNormal, "shape2");
+        break;
+      case "layer_list":
+        addShapes(builder)
+          .addAttribute(R.attr.layerItem0Drawable, "shape1")
+          .addAttribute(R.attr.layerItem1Drawable, "shape2")
+          .addAttribute(R.attr.layerItem1Insets, "2dp");
+        break;
+      case "ripple":
+        addShapes(builder)
+          .addAttribute(R.attr.rippleColor, "#40000000")
+          .addAttribute(R.attr.rippleContent, "shape1")
+          .addAttribute(R.attr.rippleMask, "shape2");
+        break;
+      case "level_list":
+        addShapes(builder)
+          .addAttribute(R.attr.levelItem0Drawable, "shape1")
+          .addAttribute(R.attr.levelItem0MaxLevel, "5000")
+          .addAttribute(R.attr.levelItem1Drawable, "shape2")
+          .addAttribute(R.attr.levelItem1MinLevel, "5001")
+          .addAttribute(R.attr.levelItem1MaxLevel, "10000");
+        break;
+      case "clip":
+        addShapes(builder)
+          .addAttribute(R.attr.clipDrawable, "shape1")
+          .addAttribute(R.attr.clipOrientation, "horizontal")
+          .addAttribute(R.attr.clipLevel, "5000");
+        break;
+      case "inset":
+        addShapes(builder)
+          .addAttribute(R.attr.insetDrawable, "shape1")
+          .addAttribute(R.attr.insetAll, "4dp");
+        break;
+      case "scale":
+        addShapes(builder)
+          .addAttribute(R.attr.scaleDrawable, "shape1")
+          .addAttribute(R.attr.scaleWidth, "0.5")
+          .addAttribute(R.attr.scaleLevel, "5000");
+        break;
+      case "animation":
+        builder.addAttribute(R.attr.animFrame0, "#FF4081")
+          .addAttribute(R.attr.animFrame1, "#3F51B5")
+          .addAttribute(R.attr.animDuration, "100");
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown drawable type " + type);
+    }
+    return builder.build();
+  }
+
+  private static AttributeSetBuilder addShapes(AttributeSetBuilder builder) {
+    return builder.addAttribute(R.attr.shape1SolidColor, "#FF4081")
+      .addAttribute(R.attr.shape1CornerRadius, "4dp")
+      .addAttribute(R.attr.shape2GradientStartColor, "#3F51B5")
+      .addAttribute(R.attr.shape2GradientEndColor, "#303F9F")
+      .addAttribute(R.attr.shape2CornerRadiusTopLeft, "8dp")
+      .addAttribute(R.attr.shape2CornerRadiusTopRight, "8dp");
+  }
+
+  private Fixtures() {}
+}
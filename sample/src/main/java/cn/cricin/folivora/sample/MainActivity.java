@@ -34,6 +34,7 @@ import cn.cricin.folivora.Folivora;
 import cn.cricin.folivora.OnViewCreatedListener;
 import cn.cricin.folivora.ParseRequest;
 import cn.cricin.folivora.RippleFallback;
+import cn.cricin.folivora.sample.drawable.FolivoraDrawables;
 import cn.cricin.folivora.sample.drawable.UmbrellaDrawable;
 
 public class MainActivity extends Activity {
@@ -59,6 +60,14 @@ public class MainActivity extends Activity {
       }
     });
 
+    //parsers generated for @FolivoraDrawable annotated drawables, which
+    //creates WindmillDrawable and AlphaBackgroundDrawable without reflection
+    FolivoraDrawables.register();
+
+    //drawables of activity_main generated at build time, elements using
+    //shapes and selectors are not parsed when inflating
+    Folivora.setLayoutDrawableFactory(new FolivoraLayoutDrawables());
+
     //UmbrellaDrawable does not have a UmbrellaDrawable(Context ctx, AttributeSet attrs)
     //constructor, so we take over creation here
     Folivora.registerDrawableParser(UmbrellaDrawable.class, new DrawableParser() {
@@ -32,8 +32,10 @@ import androidx.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 
+import cn.cricin.folivora.FolivoraDrawable;
 import cn.cricin.folivora.sample.R;
 
+@FolivoraDrawable
 @SuppressWarnings("WeakerAccess, unused")
 public class AlphaBackgroundDrawable extends Drawable {
   private static final int DEFAULT_COLOR_0 = Color.WHITE;
@@ -31,8 +31,10 @@ import androidx.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 
+import cn.cricin.folivora.FolivoraDrawable;
 import cn.cricin.folivora.sample.R;
 
+@FolivoraDrawable
 @SuppressWarnings("WeakerAccess, unused")
 public class WindmillDrawable extends Drawable {
   private static final int DEFAULT_SIZE = 100;//dp